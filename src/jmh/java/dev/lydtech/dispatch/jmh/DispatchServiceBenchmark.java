@@ -0,0 +1,96 @@
+package dev.lydtech.dispatch.jmh;
+
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.dedup.ProcessedOrderStore;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import dev.lydtech.dispatch.service.DispatchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * DispatchService.process with the stock service always answering "true" and a KafkaTemplate on an in-memory
+ * producer that serializes the events and completes every send at once, so that only the dispatch code, the
+ * template and the JSON serialization are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchServiceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean pipelined;
+
+    private DispatchService dispatchService;
+
+    private OrderCreated orderCreated;
+
+    @Setup
+    public void setUp() {
+        InMemoryProducer producer = new InMemoryProducer();
+        KafkaTemplate<String, Object> kafkaTemplate = new KafkaTemplate<>(() -> producer);
+        StockServiceClient stockServiceClient = new StockServiceClient(null, null) {
+            @Override
+            public String checkAvailable(String item) {
+                return "true";
+            }
+        };
+        dispatchService = new DispatchService(kafkaTemplate, stockServiceClient, new DispatchMetrics(new SimpleMeterRegistry()),
+                new HotPathLog(0, Duration.ZERO), DispatchEvents.separate(), (ProcessedOrderStore) null, pipelined, 16);
+        orderCreated = OrderCreated.builder().orderId(randomUUID()).item("item-" + randomUUID()).build();
+    }
+
+    @Benchmark
+    public void process() throws Exception {
+        dispatchService.process("key", orderCreated);
+    }
+
+    /**
+     * MockProducer that keeps no history of the sent records and survives the close of the KafkaTemplate
+     */
+    static class InMemoryProducer extends MockProducer<String, Object> {
+
+        InMemoryProducer() {
+            super(true, new StringSerializer(), new JsonSerializer<>());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, Object> record, Callback callback) {
+            Future<RecordMetadata> result = super.send(record, callback);
+            clear();
+            return result;
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
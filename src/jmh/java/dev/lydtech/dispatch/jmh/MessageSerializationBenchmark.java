@@ -0,0 +1,109 @@
+package dev.lydtech.dispatch.jmh;
+
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.serialization.DispatchBinaryDeserializer;
+import dev.lydtech.dispatch.serialization.DispatchBinarySerializer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * Serialization and deserialization of every message of dev.lydtech.dispatch.message, in JSON with type headers
+ * as the dispatch service sends them today and in the compact binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private static final String TOPIC = "dispatch.tracking";
+
+    @Param({"OrderCreated", "DispatchPreparing", "OrderDispached", "DispatchCompleted", "DispatchTracked"})
+    private String message;
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private Object value;
+
+    private Serializer<Object> serializer;
+
+    private Deserializer<Object> deserializer;
+
+    private byte[] data;
+
+    private Header[] headers;
+
+    @Setup
+    public void setUp() {
+        value = switch (message) {
+            case "OrderCreated" -> OrderCreated.builder().orderId(randomUUID()).item("item-" + randomUUID()).build();
+            case "DispatchPreparing" -> DispatchPreparing.builder().orderId(randomUUID()).build();
+            case "OrderDispached" -> OrderDispached.builder().orderId(randomUUID()).processedById(randomUUID())
+                    .notes("Dispatch: item-" + randomUUID()).build();
+            case "DispatchCompleted" -> DispatchCompleted.builder().orderId(randomUUID()).dispatchedDate("2023-11-01").build();
+            case "DispatchTracked" -> DispatchTracked.builder().version(2).orderId(randomUUID()).dispatchedDate("2023-11-01").build();
+            default -> throw new IllegalArgumentException("Unknown message " + message);
+        };
+        Map<String, Object> config = Map.of(JsonDeserializer.TRUSTED_PACKAGES, "dev.lydtech.dispatch.message");
+        if ("binary".equals(format)) {
+            serializer = new DispatchBinarySerializer();
+            deserializer = new DispatchBinaryDeserializer();
+        } else {
+            serializer = new JsonSerializer<>();
+            deserializer = new JsonDeserializer<>();
+        }
+        deserializer.configure(config, false);
+
+        Headers recordHeaders = new RecordHeaders();
+        data = serializer.serialize(TOPIC, recordHeaders, value);
+        headers = recordHeaders.toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), value);
+    }
+
+    /**
+     * The JsonDeserializer removes the type header it reads, so every record gets its own headers
+     */
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, new RecordHeaders(headers), data);
+    }
+}
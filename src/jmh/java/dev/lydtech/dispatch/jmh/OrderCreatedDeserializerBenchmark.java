@@ -0,0 +1,73 @@
+package dev.lydtech.dispatch.jmh;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.serialization.OrderCreatedDeserializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * An OrderCreated JSON value read by the generic JsonDeserializer, as configured by DispatchConfiguration.consumerFactory,
+ * and by the streaming OrderCreatedDeserializer. Run with -prof gc for the bytes allocated per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCreatedDeserializerBenchmark {
+
+    private static final String TOPIC = "order.created";
+
+    @Param({"JsonDeserializer", "OrderCreatedDeserializer"})
+    private String deserializerType;
+
+    private Deserializer<?> deserializer;
+
+    private byte[] data;
+
+    private RecordHeaders headers;
+
+    @Setup
+    public void setUp() {
+        if ("OrderCreatedDeserializer".equals(deserializerType)) {
+            deserializer = new OrderCreatedDeserializer();
+        } else {
+            JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+            jsonDeserializer.configure(Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class), false);
+            deserializer = jsonDeserializer;
+        }
+        data = ("{\"orderId\":\"" + randomUUID() + "\",\"item\":\"item-" + randomUUID() + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        headers = new RecordHeaders();
+    }
+
+    @TearDown
+    public void tearDown() {
+        deserializer.close();
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, headers, data);
+    }
+}
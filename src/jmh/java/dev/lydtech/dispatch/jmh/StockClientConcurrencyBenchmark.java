@@ -0,0 +1,119 @@
+package dev.lydtech.dispatch.jmh;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import dev.lydtech.dispatch.client.AsyncStockServiceClient;
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * concurrency stock lookups in flight at once against a stock service answering after latencyMillis: on the blocking
+ * StockServiceClient, one thread per outstanding lookup, and on the AsyncStockServiceClient, on two I/O threads.
+ * The score is the time for all of them to be answered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockClientConcurrencyBenchmark {
+
+    @Param({"blocking", "async"})
+    private String client;
+
+    @Param({"200"})
+    private int concurrency;
+
+    @Param({"20"})
+    private int latencyMillis;
+
+    private WireMockServer wireMockServer;
+
+    private StockServiceClient blockingClient;
+
+    private ExecutorService threads;
+
+    private AsyncStockServiceClient asyncClient;
+
+    @Setup
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort().containerThreads(concurrency + 50).disableRequestJournal());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo("/api/stock"))
+                .willReturn(aResponse().withStatus(200).withBody("true").withFixedDelay(latencyMillis)));
+        String endpoint = "http://localhost:" + wireMockServer.port() + "/api/stock";
+
+        if ("async".equals(client)) {
+            asyncClient = new AsyncStockServiceClient(endpoint, concurrency, 2,
+                    Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(30));
+        } else {
+            RestTemplate restTemplate = new DispatchConfiguration().restTemplate(concurrency,
+                    Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(30));
+            blockingClient = new StockServiceClient(restTemplate, endpoint);
+            threads = Executors.newFixedThreadPool(concurrency);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (asyncClient != null) {
+            asyncClient.close();
+        }
+        if (threads != null) {
+            threads.shutdown();
+        }
+        wireMockServer.stop();
+    }
+
+    /**
+     * Distinct items, so that the blocking client's in-flight sharing does not merge the lookups
+     */
+    @Benchmark
+    public int lookups() throws Exception {
+        int available = 0;
+        if (asyncClient != null) {
+            List<CompletableFuture<Boolean>> lookups = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                lookups.add(asyncClient.checkAvailable("item-" + i));
+            }
+            for (CompletableFuture<Boolean> lookup : lookups) {
+                available += lookup.join() ? 1 : 0;
+            }
+        } else {
+            List<Future<String>> lookups = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                String item = "item-" + i;
+                lookups.add(threads.submit(() -> blockingClient.checkAvailable(item)));
+            }
+            for (Future<String> lookup : lookups) {
+                available += Boolean.parseBoolean(lookup.get()) ? 1 : 0;
+            }
+        }
+        return available;
+    }
+}
@@ -0,0 +1,66 @@
+package dev.lydtech.dispatch.jmh;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * StockServiceClient.checkAvailable on the pooled RestTemplate of DispatchConfiguration against a WireMock stub
+ * of the stock service answering "true" after latencyMillis. Run with more threads (-t) to measure concurrent lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockServiceClientBenchmark {
+
+    @Param({"0", "5"})
+    private int latencyMillis;
+
+    private WireMockServer wireMockServer;
+
+    private StockServiceClient stockServiceClient;
+
+    @Setup
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort().containerThreads(250).disableRequestJournal());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo("/api/stock"))
+                .willReturn(aResponse().withStatus(200).withBody("true").withFixedDelay(latencyMillis)));
+
+        RestTemplate restTemplate = new DispatchConfiguration().restTemplate(200,
+                Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(30));
+        stockServiceClient = new StockServiceClient(restTemplate, "http://localhost:" + wireMockServer.port() + "/api/stock");
+    }
+
+    @TearDown
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Benchmark
+    public String checkAvailable() {
+        return stockServiceClient.checkAvailable("item-1");
+    }
+}
@@ -0,0 +1,143 @@
+package dev.lydtech.dispatch.jmh;
+
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.dedup.ProcessedOrderStore;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import dev.lydtech.dispatch.service.DispatchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * Orders dispatched per second to an embedded broker, without transactions (transactionSize 0) and in transactions
+ * of transactionSize orders, each including the consumer offset commit. The stock service always answers "true".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionThroughputBenchmark {
+
+    private static final int ORDERS = 500;
+
+    private static final TopicPartition ORDER_CREATED_PARTITION = new TopicPartition("order.created", 0);
+
+    @Param({"0", "1", "10", "100", "500"})
+    private int transactionSize;
+
+    private EmbeddedKafkaBroker broker;
+
+    private DefaultKafkaProducerFactory<String, Object> producerFactory;
+
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private DispatchService dispatchService;
+
+    private ConsumerGroupMetadata groupMetadata;
+
+    private List<ConsumerRecord<String, OrderCreated>> orders;
+
+    @Setup
+    public void setUp() {
+        broker = new EmbeddedKafkaBroker(1, true, 1, "order.created", "order.dispatched", "dispatch.tracking")
+                .brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                        "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+
+        producerFactory = producerFactory(transactionSize > 0 ? "benchmark-" : null);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        StockServiceClient stockServiceClient = new StockServiceClient(null, null) {
+            @Override
+            public String checkAvailable(String item) {
+                return "true";
+            }
+        };
+        dispatchService = new DispatchService(kafkaTemplate, stockServiceClient,
+                new DispatchMetrics(new SimpleMeterRegistry()), new HotPathLog(0, Duration.ZERO),
+                DispatchEvents.separate(), (ProcessedOrderStore) null, false, 16);
+        groupMetadata = new ConsumerGroupMetadata("dispatch.benchmark");
+
+        orders = new ArrayList<>(ORDERS);
+        for (int offset = 0; offset < ORDERS; offset++) {
+            OrderCreated orderCreated = OrderCreated.builder().orderId(randomUUID()).item("item-" + (offset % 100)).build();
+            orders.add(new ConsumerRecord<>("order.created", 0, offset, randomUUID().toString(), orderCreated));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        producerFactory.destroy();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public void dispatch() throws Exception {
+        if (transactionSize == 0) {
+            for (ConsumerRecord<String, OrderCreated> order : orders) {
+                dispatchService.process(order.key(), order.value());
+            }
+            return;
+        }
+        for (int from = 0; from < orders.size(); from += transactionSize) {
+            List<ConsumerRecord<String, OrderCreated>> batch = orders.subList(from, Math.min(from + transactionSize, orders.size()));
+            kafkaTemplate.executeInTransaction(operations -> {
+                dispatchService.processBatch(batch);
+                long nextOffset = batch.get(batch.size() - 1).offset() + 1;
+                operations.sendOffsetsToTransaction(Map.of(ORDER_CREATED_PARTITION, new OffsetAndMetadata(nextOffset)),
+                        groupMetadata);
+                return null;
+            });
+        }
+    }
+
+    private DefaultKafkaProducerFactory<String, Object> producerFactory(String transactionIdPrefix) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(config);
+        if (transactionIdPrefix != null) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
+    }
+}
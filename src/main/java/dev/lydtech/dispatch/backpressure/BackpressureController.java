@@ -0,0 +1,244 @@
+package dev.lydtech.dispatch.backpressure;
+
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pauses the order.created listener containers while the stock service or the producer is saturated, and resumes
+ * them once the pressure has dropped.
+ *
+ * Every interval it samples the records held by the listeners, the mean stock check latency over the interval and
+ * the share of the producer's buffer.memory in use. The containers are paused as soon as one of them is over its
+ * threshold, and resumed once all of them are below resumeRatio of their threshold. A paused container keeps
+ * polling without fetching, so its consumer stays in the group however long the pause lasts; the records of the
+ * poll under way are still processed, max.poll.records bounds what is in flight once paused.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.backpressure.enabled", havingValue = "true")
+public class BackpressureController {
+
+    private static final String GROUP_ID = "dispatch.order.created.consumer";
+
+    static final String IN_FLIGHT = "in-flight";
+    static final String STOCK_LATENCY = "stock-latency";
+    static final String PRODUCER_BUFFER = "producer-buffer";
+
+    private final Supplier<Collection<MessageListenerContainer>> containers;
+
+    private final Supplier<Pressure> pressure;
+
+    private final int maxInFlight;
+
+    private final long maxStockLatencyNanos;
+
+    private final double maxBufferUsage;
+
+    private final double resumeRatio;
+
+    private final Map<String, Counter> pauses;
+
+    private final Counter resumes;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean paused;
+
+    @Autowired
+    public BackpressureController(KafkaListenerEndpointRegistry registry,
+                                  DispatchMetrics dispatchMetrics,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${dispatch.backpressure.interval:100ms}") Duration interval,
+                                  @Value("${dispatch.backpressure.max-in-flight:1000}") int maxInFlight,
+                                  @Value("${dispatch.backpressure.max-stock-latency:500ms}") Duration maxStockLatency,
+                                  @Value("${dispatch.backpressure.max-buffer-usage:0.8}") double maxBufferUsage,
+                                  @Value("${dispatch.backpressure.resume-ratio:0.5}") double resumeRatio) {
+        this(() -> orderContainers(registry), pressure(dispatchMetrics, meterRegistry),
+                maxInFlight, maxStockLatency, maxBufferUsage, resumeRatio, meterRegistry);
+        scheduler.scheduleAtFixedRate(this::sampleSafely, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    BackpressureController(Supplier<Collection<MessageListenerContainer>> containers, Supplier<Pressure> pressure,
+                           int maxInFlight, Duration maxStockLatency, double maxBufferUsage, double resumeRatio,
+                           MeterRegistry meterRegistry) {
+        this.containers = containers;
+        this.pressure = pressure;
+        this.maxInFlight = maxInFlight;
+        this.maxStockLatencyNanos = maxStockLatency.toNanos();
+        this.maxBufferUsage = maxBufferUsage;
+        this.resumeRatio = resumeRatio;
+        this.pauses = Map.of(IN_FLIGHT, pauseCounter(IN_FLIGHT, meterRegistry),
+                STOCK_LATENCY, pauseCounter(STOCK_LATENCY, meterRegistry),
+                PRODUCER_BUFFER, pauseCounter(PRODUCER_BUFFER, meterRegistry));
+        this.resumes = Counter.builder("dispatch.backpressure.resumes")
+                .description("Resumes of the order.created listener containers once the pressure dropped")
+                .register(meterRegistry);
+        Gauge.builder("dispatch.backpressure.paused", this, controller -> controller.paused ? 1 : 0)
+                .description("1 while the order.created listener containers are paused by backpressure")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dispatch-backpressure");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Counter pauseCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("dispatch.backpressure.pauses")
+                .description("Pauses of the order.created listener containers, by the signal over its threshold")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The containers of the order.created consumer group, retry topic containers included
+     */
+    private static Collection<MessageListenerContainer> orderContainers(KafkaListenerEndpointRegistry registry) {
+        return registry.getListenerContainers().stream()
+                .filter(container -> container.getGroupId() != null && container.getGroupId().startsWith(GROUP_ID))
+                .toList();
+    }
+
+    private static Supplier<Pressure> pressure(DispatchMetrics dispatchMetrics, MeterRegistry meterRegistry) {
+        StockLatency stockLatency = new StockLatency(meterRegistry);
+        return () -> new Pressure(dispatchMetrics.inFlight(), stockLatency.sinceLastSample(), bufferUsage(meterRegistry));
+    }
+
+    /**
+     * Share of buffer.memory in use, over all the producers registered by the MicrometerProducerListener
+     */
+    static double bufferUsage(MeterRegistry meterRegistry) {
+        double available = sum(meterRegistry.find("kafka.producer.buffer.available.bytes").gauges());
+        double total = sum(meterRegistry.find("kafka.producer.buffer.total.bytes").gauges());
+        return total > 0 ? 1 - available / total : 0;
+    }
+
+    private static double sum(Collection<Gauge> gauges) {
+        double sum = 0;
+        for (Gauge gauge : gauges) {
+            double value = gauge.value();
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.warn("Backpressure sample failed", e);
+        }
+    }
+
+    void sample() {
+        Pressure current = pressure.get();
+        if (paused) {
+            if (relieved(current)) {
+                paused = false;
+                containers.get().forEach(MessageListenerContainer::resume);
+                resumes.increment();
+                log.info("Resuming the order.created listeners - {}", current);
+            } else {
+                // containers started since the pause are paused as well
+                containers.get().stream().filter(container -> !container.isPauseRequested())
+                        .forEach(MessageListenerContainer::pause);
+            }
+            return;
+        }
+        String reason = overloaded(current);
+        if (reason != null) {
+            paused = true;
+            containers.get().forEach(MessageListenerContainer::pause);
+            pauses.get(reason).increment();
+            log.warn("Pausing the order.created listeners, {} over its threshold - {}", reason, current);
+        }
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    private String overloaded(Pressure pressure) {
+        if (pressure.inFlight() > maxInFlight) {
+            return IN_FLIGHT;
+        }
+        if (pressure.stockLatencyNanos() > maxStockLatencyNanos) {
+            return STOCK_LATENCY;
+        }
+        if (pressure.bufferUsage() > maxBufferUsage) {
+            return PRODUCER_BUFFER;
+        }
+        return null;
+    }
+
+    private boolean relieved(Pressure pressure) {
+        return pressure.inFlight() < maxInFlight * resumeRatio
+                && pressure.stockLatencyNanos() < maxStockLatencyNanos * resumeRatio
+                && pressure.bufferUsage() < maxBufferUsage * resumeRatio;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    record Pressure(int inFlight, long stockLatencyNanos, double bufferUsage) {
+
+        @Override
+        public String toString() {
+            return String.format("in flight: %d, stock latency: %d ms, producer buffer: %.0f%%",
+                    inFlight, TimeUnit.NANOSECONDS.toMillis(stockLatencyNanos), bufferUsage * 100);
+        }
+    }
+
+    /**
+     * Mean latency of the stock checks completed since the previous sample, 0 when there were none
+     */
+    static class StockLatency {
+
+        private final MeterRegistry meterRegistry;
+
+        private long count;
+
+        private double totalNanos;
+
+        StockLatency(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        long sinceLastSample() {
+            long newCount = 0;
+            double newTotalNanos = 0;
+            for (Timer timer : meterRegistry.find("dispatch.stock.check").timers()) {
+                newCount += timer.count();
+                newTotalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            }
+            long calls = newCount - count;
+            double nanos = newTotalNanos - totalNanos;
+            count = newCount;
+            totalNanos = newTotalNanos;
+            return calls > 0 ? (long) (nanos / calls) : 0;
+        }
+    }
+}
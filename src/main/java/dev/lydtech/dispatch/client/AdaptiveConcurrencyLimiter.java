@@ -0,0 +1,85 @@
+package dev.lydtech.dispatch.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit: grows by one while calls complete under the latency threshold and the limit is in use,
+ * shrinks by the backoff ratio when a call fails or is slower than the threshold.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos) {
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+    }
+
+    /**
+     * Takes a slot if fewer calls than the current limit are in flight; every acquired slot must be released
+     * through one of onSuccess, onDropped or onIgnored
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            increase(inFlightAtCompletion);
+        }
+    }
+
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    /**
+     * Releases the slot of a call that says nothing about the stock service's health
+     */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+    }
+
+    private synchronized void increase(int inFlightAtCompletion) {
+        // only grow a limit that is actually being used
+        if (inFlightAtCompletion * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+}
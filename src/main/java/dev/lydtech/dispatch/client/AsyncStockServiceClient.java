@@ -0,0 +1,122 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking stock service client: lookups return immediately and complete on the client's I/O threads,
+ * so many lookups can be in flight without holding a thread each.
+ *
+ * Connections are pooled and kept alive, HTTP/2 is negotiated where the stock service supports it.
+ * Timeouts, I/O errors and 5xx answers complete the lookup with a RetryableException.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.stock.async.enabled", havingValue = "true")
+public class AsyncStockServiceClient {
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final String stockServiceEndPoint;
+
+    public AsyncStockServiceClient(@Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint,
+                                   @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+                                   @Value("${dispatch.stock.http.io-threads:2}") int ioThreads,
+                                   @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+                                   @Value("${dispatch.stock.http.response-timeout:2s}") Duration responseTimeout,
+                                   @Value("${dispatch.stock.http.keep-alive:30s}") Duration keepAlive) {
+        this.stockServiceEndPoint = stockServiceEndpoint;
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .setSocketTimeout(Timeout.of(responseTimeout))
+                                .build())
+                        .setDefaultTlsConfig(TlsConfig.custom()
+                                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                                .build())
+                        .build())
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(ioThreads)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                // failed lookups are retried by the listener container's error handler
+                .disableAutomaticRetries()
+                .build();
+        this.httpClient.start();
+    }
+
+    /**
+     * Completes with true if the item is available, false otherwise
+     */
+    public CompletableFuture<Boolean> checkAvailable(String item) {
+        CompletableFuture<Boolean> available = new CompletableFuture<>();
+        SimpleHttpRequest request = SimpleRequestBuilder.get(stockServiceEndPoint + "?item=" + item).build();
+
+        httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                int httpResponseCode = response.getCode();
+                if (httpResponseCode == 200) {
+                    available.complete(Boolean.parseBoolean(response.getBodyText()));
+                } else if (httpResponseCode >= 500) {
+                    available.completeExceptionally(new RetryableException(String.format("error %s", httpResponseCode)));
+                } else {
+                    log.error("Stock service answered {} for item {}", httpResponseCode, item);
+                    available.completeExceptionally(new RuntimeException(String.format("error %s", httpResponseCode)));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                if (e instanceof IOException) {
+                    available.completeExceptionally(new RetryableException(e));
+                } else {
+                    log.error("Exception thrown {}", e.getClass().getName(), e);
+                    available.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                available.cancel(false);
+            }
+        });
+        return available;
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+}
@@ -0,0 +1,147 @@
+package dev.lydtech.dispatch.client;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stock service client with a bounded in-process cache (W-TinyLFU eviction) in front of the HTTP call.
+ *
+ * Available and unavailable answers are cached with their own TTL, and entries older than refreshAfter are
+ * reloaded in the background on access while the current answer keeps being served. Failures are not cached.
+ * Hits, misses, loads and evictions are published as the cache.* meters tagged cache=stock.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.stock.cache.enabled", havingValue = "true")
+public class CachingStockServiceClient extends StockServiceClient {
+
+    private final LoadingCache<String, String> cache;
+
+    @Autowired
+    public CachingStockServiceClient(RestTemplate restTemplate,
+                                     @Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint,
+                                     @Value("${dispatch.stock.batching.enabled:false}") boolean batching,
+                                     @Value("${dispatch.stock.batching.window:2ms}") Duration batchingWindow,
+                                     @Value("${dispatch.stock.batching.max-items:100}") int batchingMaxItems,
+                                     @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+                                     @Value("${dispatch.stock.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${dispatch.stock.cache.available-ttl:30s}") Duration availableTtl,
+                                     @Value("${dispatch.stock.cache.unavailable-ttl:5s}") Duration unavailableTtl,
+                                     @Value("${dispatch.stock.cache.refresh-after:20s}") Duration refreshAfter,
+                                     ObjectProvider<StockServiceGuard> guard,
+                                     ObjectProvider<StockLatencyTracker> latencyTracker,
+                                     ObjectProvider<AsyncStockServiceClient> asyncClient,
+                                     MeterRegistry meterRegistry) {
+        super(restTemplate, stockServiceEndpoint, batching, batchingWindow, batchingMaxItems, maxConnections, guard,
+                latencyTracker, asyncClient);
+        this.cache = buildCache(maximumSize, availableTtl, unavailableTtl, refreshAfter, Ticker.systemTicker(),
+                ForkJoinPool.commonPool(), meterRegistry);
+    }
+
+    CachingStockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint, long maximumSize,
+                              Duration availableTtl, Duration unavailableTtl, Duration refreshAfter,
+                              Ticker ticker, Executor executor, MeterRegistry meterRegistry) {
+        super(restTemplate, stockServiceEndpoint);
+        this.cache = buildCache(maximumSize, availableTtl, unavailableTtl, refreshAfter, ticker, executor, meterRegistry);
+    }
+
+    private LoadingCache<String, String> buildCache(long maximumSize, Duration availableTtl, Duration unavailableTtl,
+                                                    Duration refreshAfter, Ticker ticker, Executor executor,
+                                                    MeterRegistry meterRegistry) {
+        Caffeine<String, String> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new AvailabilityExpiry(availableTtl, unavailableTtl))
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats();
+        if (!refreshAfter.isZero()) {
+            builder.refreshAfterWrite(refreshAfter);
+        }
+        return CaffeineCacheMetrics.monitor(meterRegistry, builder.build(super::checkAvailable), "stock");
+    }
+
+    @Override
+    public String checkAvailable(String item) {
+        return cache.get(item);
+    }
+
+    /**
+     * Cached answers complete at once, misses are looked up without blocking and cached once answered
+     */
+    @Override
+    public CompletableFuture<String> checkAvailableAsync(String item) {
+        if (!isNonBlocking()) {
+            return super.checkAvailableAsync(item);
+        }
+        String cached = cache.getIfPresent(item);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return super.checkAvailableAsync(item).thenApply(available -> {
+            cache.put(item, available);
+            return available;
+        });
+    }
+
+    /**
+     * Drops the cached answer of the item, here and in every provider from withClient, which share the cache
+     */
+    public void invalidate(String item) {
+        log.info("Invalidating cached availability of item {}", item);
+        cache.invalidate(item);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Shares the cache, the misses being looked up by client
+     */
+    @Override
+    public StockAvailability withClient(StockAvailability client) {
+        return item -> cache.get(item, client::checkAvailable);
+    }
+
+    private static class AvailabilityExpiry implements Expiry<String, String> {
+
+        private final long availableTtlNanos;
+        private final long unavailableTtlNanos;
+
+        AvailabilityExpiry(Duration availableTtl, Duration unavailableTtl) {
+            this.availableTtlNanos = availableTtl.toNanos();
+            this.unavailableTtlNanos = unavailableTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String item, String available, long currentTime) {
+            return Boolean.parseBoolean(available) ? availableTtlNanos : unavailableTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String item, String available, long currentTime, long currentDuration) {
+            return expireAfterCreate(item, available, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String item, String available, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
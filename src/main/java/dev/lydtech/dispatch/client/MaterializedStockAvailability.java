@@ -0,0 +1,264 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers stock availability from a local view of the compacted stock.levels topic, without any network call.
+ *
+ * Records are keyed by item, with the stock level as a decimal value; an item is available when its level is
+ * positive, and a tombstone removes it. Every instance reads all the partitions of the topic from the beginning
+ * (no consumer group), and keeps following it once restored.
+ *
+ * Startup waits for the view to catch up with the end offsets the topic had when it was assigned, up to
+ * restoreTimeout, before the listener containers are started. Until then the health is OUT_OF_SERVICE, and lookups
+ * go to the stock service when fallbackToHttp is set, or fail with a RetryableException otherwise. Items missing
+ * from a restored view go to the stock service too when fallbackToHttp is set, and are unavailable otherwise.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "dispatch.stock.provider", havingValue = "materialized")
+public class MaterializedStockAvailability implements StockAvailability, SmartLifecycle, HealthIndicator {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final Consumer<String, String> consumer;
+
+    private final String topic;
+
+    private final Duration restoreTimeout;
+
+    private final StockServiceClient fallback;
+
+    private final Map<String, Long> levels = new ConcurrentHashMap<>();
+
+    private final CountDownLatch restored = new CountDownLatch(1);
+
+    private final Counter viewLookups;
+
+    private final Counter httpLookups;
+
+    private volatile boolean ready;
+
+    private volatile long restoreLag = -1;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    @Autowired
+    public MaterializedStockAvailability(@Value("${kafka.bootstrap-servers}") String bootstrapServers,
+                                         @Value("${dispatch.stock.materialized.topic:stock.levels}") String topic,
+                                         @Value("${dispatch.stock.materialized.restore-timeout:60s}") Duration restoreTimeout,
+                                         @Value("${dispatch.stock.materialized.fallback-to-http:true}") boolean fallbackToHttp,
+                                         StockServiceClient stockServiceClient,
+                                         MeterRegistry meterRegistry) {
+        this(new KafkaConsumer<>(Map.of(
+                        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                        ConsumerConfig.CLIENT_ID_CONFIG, "dispatch-stock-levels",
+                        ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                        ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"),
+                        new StringDeserializer(), new StringDeserializer()),
+                topic, restoreTimeout, fallbackToHttp ? stockServiceClient : null, meterRegistry);
+    }
+
+    MaterializedStockAvailability(Consumer<String, String> consumer, String topic, Duration restoreTimeout,
+                                  StockServiceClient fallback, MeterRegistry meterRegistry) {
+        this.consumer = consumer;
+        this.topic = topic;
+        this.restoreTimeout = restoreTimeout;
+        this.fallback = fallback;
+        Gauge.builder("dispatch.stock.view.items", levels, Map::size)
+                .description("Items in the local stock levels view")
+                .register(meterRegistry);
+        this.viewLookups = lookupCounter("view", meterRegistry);
+        this.httpLookups = lookupCounter("http", meterRegistry);
+    }
+
+    private static Counter lookupCounter(String source, MeterRegistry meterRegistry) {
+        return Counter.builder("dispatch.stock.view.lookups")
+                .description("Stock availability lookups by where they were answered")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String checkAvailable(String item) {
+        return lookup(item, fallback);
+    }
+
+    /**
+     * Shares the view, the items it cannot answer being looked up by client. Without a fallback configured the view
+     * is the only source, and stays so.
+     */
+    @Override
+    public StockAvailability withClient(StockAvailability client) {
+        return fallback == null ? this : item -> lookup(item, client);
+    }
+
+    private String lookup(String item, StockAvailability fallback) {
+        if (ready) {
+            Long level = levels.get(item);
+            if (level != null || fallback == null) {
+                viewLookups.increment();
+                return String.valueOf(level != null && level > 0);
+            }
+        } else if (fallback == null) {
+            throw new RetryableException("Stock levels view of " + topic + " is still restoring");
+        }
+        httpLookups.increment();
+        return fallback.checkAvailable(item);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void run() {
+        try {
+            List<TopicPartition> partitions = awaitPartitions();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            log.info("Restoring stock levels view from {} partitions of {}", partitions.size(), topic);
+            while (running) {
+                consumer.poll(POLL_TIMEOUT).forEach(this::apply);
+                if (!ready) {
+                    checkRestored(endOffsets);
+                }
+            }
+        } catch (WakeupException | InterruptedException e) {
+            // stopping
+        } catch (Exception e) {
+            log.error("Stock levels view of {} stopped following the topic", topic, e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private List<TopicPartition> awaitPartitions() throws InterruptedException {
+        while (true) {
+            try {
+                List<PartitionInfo> partitions = consumer.partitionsFor(topic);
+                if (partitions != null && !partitions.isEmpty()) {
+                    return partitions.stream().map(partition -> new TopicPartition(topic, partition.partition())).toList();
+                }
+                log.warn("Waiting for topic {} to exist", topic);
+            } catch (TimeoutException e) {
+                log.warn("Waiting for the partitions of {}: {}", topic, e.getMessage());
+            }
+            Thread.sleep(POLL_TIMEOUT.toMillis());
+        }
+    }
+
+    private void checkRestored(Map<TopicPartition, Long> endOffsets) {
+        long lag = 0;
+        for (Map.Entry<TopicPartition, Long> endOffset : endOffsets.entrySet()) {
+            lag += Math.max(0, endOffset.getValue() - consumer.position(endOffset.getKey()));
+        }
+        restoreLag = lag;
+        if (lag == 0) {
+            ready = true;
+            restored.countDown();
+            log.info("Stock levels view restored with {} items", levels.size());
+        }
+    }
+
+    private void apply(ConsumerRecord<String, String> record) {
+        if (record.key() == null) {
+            return;
+        }
+        if (record.value() == null) {
+            levels.remove(record.key());
+            return;
+        }
+        try {
+            levels.put(record.key(), Long.parseLong(record.value().trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring stock level {} of item {} at {}-{}@{}", record.value(), record.key(),
+                    record.topic(), record.partition(), record.offset());
+        }
+    }
+
+    /**
+     * Blocks until the view is restored or restoreTimeout has elapsed, so that the listener containers,
+     * started in a later phase, find it restored
+     */
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "stock-levels-view");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            if (!restored.await(restoreTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Stock levels view not restored after {}, {}", restoreTimeout,
+                        fallback != null ? "asking the stock service until it is" : "orders are retried until it is");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        consumer.wakeup();
+        thread.interrupt();
+        try {
+            thread.join(POLL_TIMEOUT.toMillis() * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the listener containers
+     */
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 100;
+    }
+
+    @Override
+    public Health health() {
+        if (ready) {
+            return Health.up().withDetail("items", levels.size()).build();
+        }
+        return Health.outOfService().withDetail("restoreLag", restoreLag).build();
+    }
+}
@@ -0,0 +1,36 @@
+package dev.lydtech.dispatch.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers whether an item is in stock, as "true" or "false".
+ *
+ * Failures worth retrying are thrown as RetryableException. The provider used by DispatchService is chosen with
+ * dispatch.stock.provider: the stock service over HTTP, cached when dispatch.stock.cache.enabled, or a local view
+ * materialized from the stock.levels topic.
+ */
+public interface StockAvailability {
+
+    String checkAvailable(String item);
+
+    /**
+     * Completes with the answer of checkAvailable, or its failure. Answers on the calling thread unless the provider
+     * can look up without holding a thread, as the stock service client does with dispatch.stock.async.enabled.
+     */
+    default CompletableFuture<String> checkAvailableAsync(String item) {
+        try {
+            return CompletableFuture.completedFuture(checkAvailable(item));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * This provider with the stock service lookups it cannot answer itself made by client instead, still answering
+     * from what it keeps locally, its cached answers or its materialized view. A stock service client without either
+     * is simply replaced by client.
+     */
+    default StockAvailability withClient(StockAvailability client) {
+        return client;
+    }
+}
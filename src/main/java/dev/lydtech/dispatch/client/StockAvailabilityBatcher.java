@@ -0,0 +1,176 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects single item lookups from any thread and resolves them with one bulk lookup per window,
+ * or as soon as maxItems distinct items are pending.
+ *
+ * Items missing from the bulk answer fail with a RetryableException, a failed bulk lookup fails every item of the batch.
+ * At most threads bulk lookups run at once, later batches wait for one to finish.
+ */
+@Slf4j
+public class StockAvailabilityBatcher implements AutoCloseable {
+
+    private final Function<Collection<String>, Map<String, String>> bulkLookup;
+
+    private final long windowNanos;
+
+    private final int maxItems;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService executor;
+
+    private final Object lock = new Object();
+
+    private Map<String, List<CompletableFuture<String>>> pending = new LinkedHashMap<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    private boolean closed;
+
+    /**
+     * threads is best sized to the HTTP connection pool, a bulk lookup beyond it would only wait for a connection
+     */
+    public StockAvailabilityBatcher(Function<Collection<String>, Map<String, String>> bulkLookup, Duration window,
+                                    int maxItems, int threads) {
+        this.bulkLookup = bulkLookup;
+        this.windowNanos = window.toNanos();
+        this.maxItems = maxItems;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("stock-batch-scheduler-"));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("stock-batch-"));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    public CompletableFuture<String> checkAvailable(String item) {
+        CompletableFuture<String> available = new CompletableFuture<>();
+        Map<String, List<CompletableFuture<String>>> full = null;
+
+        synchronized (lock) {
+            if (closed) {
+                return CompletableFuture.failedFuture(closedException());
+            }
+            pending.computeIfAbsent(item, key -> new ArrayList<>(1)).add(available);
+            if (pending.size() >= maxItems) {
+                full = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (full != null) {
+            executor.execute(new BulkLookup(full));
+        }
+        return available;
+    }
+
+    private void flush() {
+        Map<String, List<CompletableFuture<String>>> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            executor.execute(new BulkLookup(batch));
+        }
+    }
+
+    private Map<String, List<CompletableFuture<String>>> drain() {
+        Map<String, List<CompletableFuture<String>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    /**
+     * Lookups still waiting for their batch, and batches not yet started, fail with a RetryableException,
+     * so that the orders waiting on them are retried elsewhere rather than left hanging
+     */
+    @Override
+    public void close() {
+        Map<String, List<CompletableFuture<String>>> unsent;
+        synchronized (lock) {
+            closed = true;
+            unsent = drain();
+        }
+        scheduler.shutdownNow();
+        fail(unsent, closedException());
+        for (Runnable notStarted : executor.shutdownNow()) {
+            if (notStarted instanceof BulkLookup lookup) {
+                fail(lookup.batch, closedException());
+            }
+        }
+    }
+
+    private static RetryableException closedException() {
+        return new RetryableException("Stock availability batcher is closed");
+    }
+
+    private static void fail(Map<String, List<CompletableFuture<String>>> batch, Throwable e) {
+        batch.values().forEach(waiters -> waiters.forEach(waiter -> waiter.completeExceptionally(e)));
+    }
+
+    private class BulkLookup implements Runnable {
+
+        private final Map<String, List<CompletableFuture<String>>> batch;
+
+        BulkLookup(Map<String, List<CompletableFuture<String>>> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            Map<String, String> availability;
+            try {
+                availability = bulkLookup.apply(batch.keySet());
+            } catch (RuntimeException e) {
+                log.warn("Bulk stock lookup of {} items failed: {}", batch.size(), e.getMessage());
+                fail(batch, e);
+                return;
+            }
+
+            batch.forEach((item, waiters) -> {
+                String available = availability.get(item);
+                if (available == null) {
+                    RetryableException missing = new RetryableException("No availability returned for item " + item);
+                    waiters.forEach(waiter -> waiter.completeExceptionally(missing));
+                } else {
+                    waiters.forEach(waiter -> waiter.complete(available));
+                }
+            });
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
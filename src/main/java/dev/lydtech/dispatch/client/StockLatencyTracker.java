@@ -0,0 +1,64 @@
+package dev.lydtech.dispatch.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Exponentially weighted moving average of the stock service lookup latency of each item, telling which items
+ * have become slow to look up.
+ *
+ * An item whose lookups stop is forgotten expireAfter its last one, and counts as fast again until its next
+ * lookups say otherwise. At most maxItems items are tracked.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.slow-lane.enabled", havingValue = "true")
+public class StockLatencyTracker {
+
+    private final Cache<String, Double> latencies;
+
+    private final double alpha;
+
+    private final long thresholdNanos;
+
+    @Autowired
+    public StockLatencyTracker(@Value("${dispatch.slow-lane.latency-threshold:200ms}") Duration threshold,
+                               @Value("${dispatch.slow-lane.ewma-alpha:0.2}") double alpha,
+                               @Value("${dispatch.slow-lane.max-items:100000}") long maxItems,
+                               @Value("${dispatch.slow-lane.expire-after:1m}") Duration expireAfter) {
+        this(threshold, alpha, maxItems, expireAfter, Ticker.systemTicker());
+    }
+
+    StockLatencyTracker(Duration threshold, double alpha, long maxItems, Duration expireAfter, Ticker ticker) {
+        this.thresholdNanos = threshold.toNanos();
+        this.alpha = alpha;
+        this.latencies = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .expireAfterWrite(expireAfter)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * The first lookup of an item sets its average, each later one moves it by alpha of the difference
+     */
+    public void record(String item, long latencyNanos) {
+        latencies.asMap().merge(item, (double) latencyNanos, (average, latency) -> average + alpha * (latency - average));
+    }
+
+    public boolean isSlow(String item) {
+        Double average = latencies.getIfPresent(item);
+        return average != null && average > thresholdNanos;
+    }
+
+    long averageNanos(String item) {
+        Double average = latencies.getIfPresent(item);
+        return average == null ? 0 : average.longValue();
+    }
+}
@@ -1,34 +1,245 @@
 package dev.lydtech.dispatch.client;
 
 import dev.lydtech.dispatch.exception.RetryableException;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
-public class StockServiceClient {
+@ConditionalOnProperty(name = "dispatch.stock.cache.enabled", havingValue = "false", matchIfMissing = true)
+public class StockServiceClient implements StockAvailability {
+
+    private static final ParameterizedTypeReference<Map<String, String>> BULK_RESPONSE_TYPE = new ParameterizedTypeReference<>() {
+    };
 
     private final RestTemplate restTemplate;
 
     private final String stockServiceEndPoint;
 
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightCalls = new ConcurrentHashMap<>();
+
+    private final StockAvailabilityBatcher batcher;
+
+    private final StockServiceGuard guard;
+
+    /**
+     * Latency of each item's lookups, used to route the orders of slow items to the slow lane; null when
+     * dispatch.slow-lane.enabled is false
+     */
+    private final StockLatencyTracker latencyTracker;
+
+    /**
+     * Non-blocking transport of checkAvailableAsync; null when dispatch.stock.async.enabled is false
+     */
+    private final AsyncStockServiceClient asyncClient;
+
+    public StockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint) {
+        this(restTemplate, stockServiceEndpoint, null);
+    }
+
+    public StockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint, StockServiceGuard guard) {
+        this(restTemplate, stockServiceEndpoint, guard, null);
+    }
+
+    public StockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint, StockServiceGuard guard,
+                              StockLatencyTracker latencyTracker) {
+        this(restTemplate, stockServiceEndpoint, guard, latencyTracker, null);
+    }
 
-    public StockServiceClient(@Autowired RestTemplate restTemplate,
-                              @Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint) {
+    public StockServiceClient(RestTemplate restTemplate, String stockServiceEndpoint, StockServiceGuard guard,
+                              StockLatencyTracker latencyTracker, AsyncStockServiceClient asyncClient) {
         this.restTemplate = restTemplate;
         this.stockServiceEndPoint = stockServiceEndpoint;
+        this.batcher = null;
+        this.guard = guard;
+        this.latencyTracker = latencyTracker;
+        this.asyncClient = asyncClient;
+    }
+
+    /**
+     * With batching enabled single item lookups are collected for up to batchingWindow, or batchingMaxItems
+     * distinct items, and resolved with one bulk request, at most maxConnections of them at once.
+     * When a StockServiceGuard is configured every request to the stock service goes through it.
+     * With dispatch.stock.async.enabled checkAvailableAsync looks up on the AsyncStockServiceClient.
+     */
+    @Autowired
+    public StockServiceClient(RestTemplate restTemplate,
+                              @Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint,
+                              @Value("${dispatch.stock.batching.enabled:false}") boolean batching,
+                              @Value("${dispatch.stock.batching.window:2ms}") Duration batchingWindow,
+                              @Value("${dispatch.stock.batching.max-items:100}") int batchingMaxItems,
+                              @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+                              ObjectProvider<StockServiceGuard> guard,
+                              ObjectProvider<StockLatencyTracker> latencyTracker,
+                              ObjectProvider<AsyncStockServiceClient> asyncClient) {
+        this.restTemplate = restTemplate;
+        this.stockServiceEndPoint = stockServiceEndpoint;
+        this.batcher = batching
+                ? new StockAvailabilityBatcher(this::checkAvailable, batchingWindow, batchingMaxItems, maxConnections)
+                : null;
+        this.guard = guard.getIfAvailable();
+        this.latencyTracker = latencyTracker.getIfAvailable();
+        this.asyncClient = asyncClient.getIfAvailable();
     }
 
     /**
      * The Stock service returns true if item is available, false otherwise
+     *
+     * Concurrent lookups of the same item share a single in-flight request, and its result or failure.
+     * The latency of the request, failed or not, is recorded for the item when a StockLatencyTracker is configured.
      */
+    @Override
     public String checkAvailable(String item) {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightCalls.putIfAbsent(item, call);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        long start = System.nanoTime();
+        try {
+            String available = batcher != null ? await(batcher.checkAvailable(item)) : guarded(() -> fetchAvailable(item));
+            call.complete(available);
+            return available;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(item, call);
+            if (latencyTracker != null) {
+                latencyTracker.record(item, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * As checkAvailable without holding the calling thread when an AsyncStockServiceClient, or batching, is
+     * configured: single item lookups go through the AsyncStockServiceClient, or the batcher, and share in-flight
+     * requests with the blocking lookups. Without either it answers on the calling thread.
+     */
+    @Override
+    public CompletableFuture<String> checkAvailableAsync(String item) {
+        if (!isNonBlocking()) {
+            return StockAvailability.super.checkAvailableAsync(item);
+        }
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightCalls.putIfAbsent(item, call);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<String> lookup = batcher != null ? batcher.checkAvailable(item) : guardedAsync(() -> fetchAvailableAsync(item));
+        lookup.whenComplete((available, e) -> {
+            inFlightCalls.remove(item, call);
+            if (latencyTracker != null) {
+                latencyTracker.record(item, System.nanoTime() - start);
+            }
+            if (e != null) {
+                call.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                call.complete(available);
+            }
+        });
+        return call;
+    }
+
+    /**
+     * The Stock service returns the availability of every known item, items missing from the answer are unknown
+     */
+    public Map<String, String> checkAvailable(Collection<String> items) {
+        return guarded(() -> fetchAvailable(items));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    protected boolean isNonBlocking() {
+        return asyncClient != null || batcher != null;
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        return guard != null ? guard.call(call) : call.get();
+    }
+
+    private <T> CompletableFuture<T> guardedAsync(Supplier<CompletableFuture<T>> call) {
+        return guard != null ? guard.callAsync(call) : call.get();
+    }
+
+    private CompletableFuture<String> fetchAvailableAsync(String item) {
+        return asyncClient.checkAvailable(item).thenApply(String::valueOf);
+    }
+
+    private Map<String, String> fetchAvailable(Collection<String> items) {
+        try {
+            ResponseEntity<Map<String, String>> response = restTemplate.exchange(bulkUri(items), HttpMethod.GET, null,
+                    BULK_RESPONSE_TYPE);
+
+            var httpResponseCode = response.getStatusCode();
+            if (httpResponseCode.value() != 200) {
+                throw new RuntimeException(String.format("error %s", httpResponseCode.value()));
+            }
+            return response.getBody() != null ? response.getBody() : Map.of();
+        } catch (HttpServerErrorException | ResourceAccessException e) {
+            throw new RetryableException(e);
+        } catch (Exception e) {
+            log.error("Exception thrown {}", e.getClass().getName(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * One items query parameter per item, each value strictly encoded, so that items holding a comma, an ampersand
+     * or a plus reach the stock service unchanged
+     */
+    private URI bulkUri(Collection<String> items) {
+        return UriComponentsBuilder.fromUriString(stockServiceEndPoint)
+                .path("/bulk")
+                .queryParam("items", Collections.nCopies(items.size(), "{item}").toArray())
+                .encode()
+                .buildAndExpand(items.toArray())
+                .toUri();
+    }
+
+    private String await(CompletableFuture<String> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RetryableException(e.getCause());
+        }
+    }
+
+    private String fetchAvailable(String item) {
         try {
             String url = stockServiceEndPoint + "?item=" + item;
             ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
@@ -0,0 +1,138 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive concurrency limit and circuit breaker around the calls to the stock service.
+ *
+ * Calls over the limit, or while the breaker is open, fail fast with a RetryableException without touching the
+ * network. RetryableExceptions and calls slower than the latency threshold count against the stock service.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.stock.guard.enabled", havingValue = "true")
+public class StockServiceGuard {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final long latencyThresholdNanos;
+
+    private final Counter limitRejections;
+
+    private final Counter openRejections;
+
+    @Autowired
+    public StockServiceGuard(@Value("${dispatch.stock.guard.initial-limit:20}") int initialLimit,
+                             @Value("${dispatch.stock.guard.min-limit:1}") int minLimit,
+                             @Value("${dispatch.stock.guard.max-limit:200}") int maxLimit,
+                             @Value("${dispatch.stock.guard.latency-threshold:500ms}") Duration latencyThreshold,
+                             @Value("${dispatch.stock.guard.sliding-window-size:20}") int slidingWindowSize,
+                             @Value("${dispatch.stock.guard.minimum-calls:10}") int minimumCalls,
+                             @Value("${dispatch.stock.guard.failure-rate-threshold:50}") int failureRateThreshold,
+                             @Value("${dispatch.stock.guard.open-duration:5s}") Duration openDuration,
+                             @Value("${dispatch.stock.guard.half-open-calls:3}") int halfOpenCalls,
+                             MeterRegistry meterRegistry) {
+        this(new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThreshold.toNanos()),
+                new CircuitBreaker("stock-service", slidingWindowSize, minimumCalls, failureRateThreshold / 100.0,
+                        openDuration.toNanos(), halfOpenCalls, System::nanoTime),
+                latencyThreshold, meterRegistry);
+    }
+
+    StockServiceGuard(AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker, Duration latencyThreshold,
+                      MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+
+        Gauge.builder("dispatch.stock.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit of the stock service calls")
+                .register(meterRegistry);
+        Gauge.builder("dispatch.stock.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Stock service calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("dispatch.stock.circuit-breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Stock service circuit breaker state: 0 closed, 1 half open, 2 open")
+                .register(meterRegistry);
+        this.limitRejections = Counter.builder("dispatch.stock.rejected").tag("reason", "limit").register(meterRegistry);
+        this.openRejections = Counter.builder("dispatch.stock.rejected").tag("reason", "open").register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            onCompleted(start, null);
+            return result;
+        } catch (RuntimeException e) {
+            onCompleted(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * As call, for a call completing later: the permit is held until the returned future completes.
+     * A rejected call completes exceptionally with a RetryableException.
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        try {
+            acquire();
+        } catch (RetryableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onCompleted(start, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, e) -> onCompleted(start,
+                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
+
+    private void acquire() {
+        if (!limiter.tryAcquire()) {
+            limitRejections.increment();
+            throw new RetryableException(String.format("Stock service concurrency limit of %d reached", limiter.getLimit()));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            limiter.onIgnored();
+            openRejections.increment();
+            throw new RetryableException("Stock service circuit breaker is open");
+        }
+    }
+
+    private void onCompleted(long start, Throwable failure) {
+        if (failure == null) {
+            long latency = System.nanoTime() - start;
+            limiter.onSuccess(latency);
+            if (latency > latencyThresholdNanos) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        } else if (failure instanceof RetryableException) {
+            limiter.onDropped();
+            circuitBreaker.onFailure();
+        } else {
+            // the stock service answered, the request itself was wrong
+            limiter.onIgnored();
+            circuitBreaker.onSuccess();
+        }
+    }
+}
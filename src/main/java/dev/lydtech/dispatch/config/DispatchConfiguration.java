@@ -1,84 +1,389 @@
 package dev.lydtech.dispatch.config;
 
+import dev.lydtech.dispatch.client.StockAvailability;
+import dev.lydtech.dispatch.client.StockLatencyTracker;
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.exception.NotRetryableException;
 import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.handler.DispatchRebalanceListener;
+import dev.lydtech.dispatch.handler.SlowLaneRouter;
 import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.serialization.DispatchBinaryDeserializer;
+import dev.lydtech.dispatch.serialization.DispatchBinarySerializer;
+import dev.lydtech.dispatch.serialization.OrderCreatedDeserializer;
+import dev.lydtech.dispatch.service.DispatchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.FailedRecordProcessor;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.util.backoff.FixedBackOff;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.NotActiveException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
+@Slf4j
 @Configuration
 @ComponentScan(basePackages = {"dev.lydtech.dispatch"})
 public class DispatchConfiguration {
 
+    private static final String TRANSACTION_ID_PREFIX = "dispatch-tx-";
+
+    private static final String ORDER_CREATED_DLT = "order.created.DLT";
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
             ConsumerFactory<String, Object> consumerFactory,
-            KafkaTemplate<String, Object> kafkaTemplate) {
+            KafkaTemplate<String, Object> kafkaTemplate,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            ObjectProvider<KafkaTransactionManager<String, Object>> kafkaTransactionManager,
+            DispatchMetrics dispatchMetrics,
+            DispatchRebalanceListener rebalanceListener,
+            @Value("${dispatch.listener.concurrency:1}") int concurrency) {
+        return recordListenerContainerFactory(consumerFactory, kafkaTemplate, deadLetterPublishingRecoverer,
+                kafkaTransactionManager, dispatchMetrics, rebalanceListener, concurrency);
+    }
+
+    /**
+     * Record listener container factory of order.created.slow, with more consumers than order.created and fewer
+     * records a poll, as each of its records can take up to dispatch.slow-lane.response-timeout.
+     * order.created.slow needs at least dispatch.slow-lane.concurrency partitions for them all to get some.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "dispatch.slow-lane.enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> slowLaneKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            ObjectProvider<KafkaTransactionManager<String, Object>> kafkaTransactionManager,
+            DispatchMetrics dispatchMetrics,
+            DispatchRebalanceListener rebalanceListener,
+            @Value("${dispatch.slow-lane.concurrency:4}") int concurrency,
+            @Value("${dispatch.slow-lane.max-poll-records:20}") int maxPollRecords) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = recordListenerContainerFactory(consumerFactory,
+                kafkaTemplate, deadLetterPublishingRecoverer, kafkaTransactionManager, dispatchMetrics, rebalanceListener,
+                concurrency);
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        return factory;
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, Object> recordListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            ObjectProvider<KafkaTransactionManager<String, Object>> kafkaTransactionManager,
+            DispatchMetrics dispatchMetrics,
+            DispatchRebalanceListener rebalanceListener,
+            int concurrency) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory);
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
-                new DeadLetterPublishingRecoverer(kafkaTemplate),
-                new FixedBackOff(100L, 3L));
-        errorHandler.addRetryableExceptions(RetryableException.class);
-        errorHandler.addNotRetryableExceptions(NotActiveException.class);
-        factory.setCommonErrorHandler(errorHandler);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        factory.setRecordInterceptor(dispatchMetrics.inFlightInterceptor());
+        factory.setCommonErrorHandler(errorHandler(deadLetterPublishingRecoverer, dispatchMetrics));
+        kafkaTransactionManager.ifAvailable(transactionManager -> {
+            // every record is its own transaction, failed records are dead-lettered in a new transaction
+            factory.getContainerProperties().setTransactionManager(transactionManager);
+            factory.setAfterRollbackProcessor(classify(new DefaultAfterRollbackProcessor<>(deadLetterPublishingRecoverer,
+                    dispatchMetrics.countingRetries(new FixedBackOff(100L, 3L)), kafkaTemplate, true)));
+        });
         return factory;
     }
 
+    /**
+     * Batch variant of the listener container factory, used when dispatch.engine=batch.
+     * The listener must throw a BatchListenerFailedException identifying the failed record so that
+     * the records before it are committed and only the failed one is retried or sent to the DLT.
+     *
+     * A poll returns up to dispatch.batch.max-records records. The broker answers a fetch as soon as
+     * dispatch.batch.min-bytes are available, or after dispatch.batch.max-wait-ms otherwise. The default of 1 byte
+     * answers as soon as any record is there; raising it fills larger batches, and transactions when enabled, at the
+     * cost of up to max-wait-ms of latency on a quiet partition.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            ObjectProvider<KafkaTransactionManager<String, Object>> kafkaTransactionManager,
+            DispatchMetrics dispatchMetrics,
+            DispatchRebalanceListener rebalanceListener,
+            @Value("${dispatch.batch.max-records:500}") int maxRecords,
+            @Value("${dispatch.batch.max-wait-ms:500}") int maxWaitMs,
+            @Value("${dispatch.batch.min-bytes:1}") int minBytes,
+            @Value("${dispatch.listener.concurrency:1}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        factory.setBatchListener(true);
+        factory.setBatchInterceptor(dispatchMetrics.inFlightInterceptor());
+        factory.setCommonErrorHandler(errorHandler(deadLetterPublishingRecoverer, dispatchMetrics));
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxRecords);
+        consumerProperties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, maxWaitMs);
+        consumerProperties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, minBytes);
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        kafkaTransactionManager.ifAvailable(transactionManager -> {
+            // a failed batch is rolled back and redelivered as a whole, the listener dead-letters not retryable
+            // records and records out of dispatch.batch.max-attempts itself inside the transaction
+            factory.getContainerProperties().setTransactionManager(transactionManager);
+            factory.setAfterRollbackProcessor(classify(new DefaultAfterRollbackProcessor<>(
+                    dispatchMetrics.countingRetries(new FixedBackOff(100L, 3L)))));
+        });
+        return factory;
+    }
+
+    /**
+     * Logs every record it dead-letters in full, as the per-message lines of the hot path are only logged at debug.
+     * The orders of the slow lane are dead-lettered to order.created.DLT with the others, on any of its partitions.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate, (record, exception) ->
+                SlowLaneRouter.SLOW_LANE_TOPIC.equals(record.topic())
+                        ? new TopicPartition(ORDER_CREATED_DLT, -1)
+                        : new TopicPartition(record.topic() + ".DLT", record.partition())) {
+            @Override
+            public void accept(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer, Exception exception) {
+                log.error("Dead-lettering record - topic: {} - partition: {} - offset: {} - key: {} - value: {}",
+                        record.topic(), record.partition(), record.offset(), record.key(), record.value(), exception);
+                super.accept(record, consumer, exception);
+            }
+        };
+    }
+
+    /**
+     * Non-blocking retries for the record engine, used when dispatch.retry.mode=topics.
+     * A record failing with a RetryableException is forwarded to order.created-retry-0..n and consumed again there
+     * once its exponential, jittered backoff has elapsed, so the main partition keeps flowing. Records failing
+     * otherwise, or out of attempts, go straight to order.created.DLT.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "dispatch.retry.mode", havingValue = "topics")
+    public RetryTopicConfiguration retryTopicConfiguration(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${dispatch.retry.topics.attempts:4}") int attempts,
+            @Value("${dispatch.retry.topics.initial-interval:1s}") Duration initialInterval,
+            @Value("${dispatch.retry.topics.multiplier:2.0}") double multiplier,
+            @Value("${dispatch.retry.topics.max-interval:30s}") Duration maxInterval,
+            @Value("${dispatch.retry.topics.partitions:1}") int partitions,
+            @Value("${dispatch.retry.topics.replication-factor:1}") short replicationFactor) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic("order.created")
+                .maxAttempts(attempts)
+                .exponentialBackoff(initialInterval.toMillis(), multiplier, maxInterval.toMillis(), true)
+                .retryOn(RetryableException.class)
+                .traversingCauses()
+                .suffixTopicsWithIndexValues()
+                .dltSuffix(".DLT")
+                .autoCreateTopicsWith(partitions, replicationFactor)
+                .listenerFactory("kafkaListenerContainerFactory")
+                .create(kafkaTemplate);
+    }
+
+    private DefaultErrorHandler errorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                             DispatchMetrics dispatchMetrics) {
+        return classify(new DefaultErrorHandler(deadLetterPublishingRecoverer,
+                dispatchMetrics.countingRetries(new FixedBackOff(100L, 3L))));
+    }
+
+    private <T extends FailedRecordProcessor> T classify(T failedRecordProcessor) {
+        failedRecordProcessor.addRetryableExceptions(RetryableException.class);
+        failedRecordProcessor.addNotRetryableExceptions(NotRetryableException.class);
+        return failedRecordProcessor;
+    }
+
+    /**
+     * With dispatch.serialization.decode-binary the consumer reads both JSON and compact binary values.
+     * With dispatch.serialization.streaming-json JSON values are read by the OrderCreatedDeserializer.
+     * Values that cannot be deserialized are counted before they reach the listener as poison pills.
+     *
+     * Partitions are assigned with the cooperative-sticky assignor by default, so a rebalance only stops the
+     * partitions that move. With dispatch.rebalance.group-instance-id the consumers are static members: an instance
+     * restarting within the session timeout gets its partitions back without a rebalance. The id must be unique per
+     * instance and stable across restarts (a StatefulSet pod name), the containers suffix it per consumer.
+     */
     @Bean
     public ConsumerFactory<String, Object> consumerFactory(
-            @Value("${kafka.bootstrap-servers}") String bootstrapServers
+            @Value("${kafka.bootstrap-servers}") String bootstrapServers,
+            @Value("${dispatch.serialization.decode-binary:false}") boolean decodeBinary,
+            @Value("${dispatch.serialization.streaming-json:false}") boolean streamingJson,
+            @Value("${dispatch.rebalance.assignment-strategy:org.apache.kafka.clients.consumer.CooperativeStickyAssignor}") String assignmentStrategy,
+            @Value("${dispatch.rebalance.group-instance-id:}") String groupInstanceId,
+            @Value("${dispatch.rebalance.session-timeout:45s}") Duration sessionTimeout,
+            DispatchMetrics dispatchMetrics,
+            MeterRegistry meterRegistry
     ) {
         Map<String, Object> config = new HashMap<>();
+        Class<?> jsonDeserializer = streamingJson ? OrderCreatedDeserializer.class : JsonDeserializer.class;
 
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS,
+                decodeBinary ? DispatchBinaryDeserializer.class : jsonDeserializer);
+        config.put(DispatchBinaryDeserializer.JSON_DELEGATE_CLASS, jsonDeserializer);
         config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class);
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         config.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, true);
+        config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, assignmentStrategy);
+        if (!groupInstanceId.isBlank()) {
+            config.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId);
+            config.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, (int) sessionTimeout.toMillis());
+        }
 
-        return new DefaultKafkaConsumerFactory<>(config);
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(config, StringDeserializer::new, () -> {
+            ErrorHandlingDeserializer<Object> valueDeserializer = new ErrorHandlingDeserializer<>();
+            valueDeserializer.setFailedDeserializationFunction(dispatchMetrics.deserializationErrorCounter());
+            return valueDeserializer;
+        });
+        // the Kafka client metrics, records-lag of every assigned partition included
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
-        return new KafkaTemplate<>(producerFactory);
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory,
+                                                       DispatchMetrics dispatchMetrics) {
+        KafkaTemplate<String, Object> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setProducerListener(dispatchMetrics.producerListener());
+        return kafkaTemplate;
     }
 
+    /**
+     * dispatch.serialization.format=binary writes the compact binary format instead of JSON, its consumers must
+     * be able to decode it first
+     */
     @Bean
     public ProducerFactory<String, Object> producerFactory(
-            @Value("${kafka.bootstrap-servers}") String kafkaBootstrapServers
+            @Value("${kafka.bootstrap-servers}") String kafkaBootstrapServers,
+            @Value("${dispatch.transactions.enabled:false}") boolean transactional,
+            @Value("${dispatch.serialization.format:json}") String format,
+            MeterRegistry meterRegistry
     ) {
         Map<String, Object> config = new HashMap<>();
 
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                "binary".equals(format) ? DispatchBinarySerializer.class : JsonSerializer.class);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // idempotence keeps records for the same key in order even with several requests in flight,
+        // which the pipelined dispatch mode relies on
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
 
-        return new DefaultKafkaProducerFactory<>(config);
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(config);
+        if (transactional) {
+            factory.setTransactionIdPrefix(TRANSACTION_ID_PREFIX);
+        }
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
+    /**
+     * Commits the consumer offsets in the same transaction as the dispatch events, so a redelivery
+     * never produces duplicate OrderDispached events.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConditionalOnProperty(name = "dispatch.transactions.enabled", havingValue = "true")
+    public KafkaTransactionManager<String, Object> kafkaTransactionManager(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTransactionManager<>(producerFactory);
+    }
+
+    /**
+     * RestTemplate on a pooled keep-alive HTTP client, with explicit connect and response timeouts.
+     * A timeout surfaces as a ResourceAccessException, which StockServiceClient treats as retryable.
+     */
+    @Bean
+    public RestTemplate restTemplate(@Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+                                     @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+                                     @Value("${dispatch.stock.http.response-timeout:2s}") Duration responseTimeout,
+                                     @Value("${dispatch.stock.http.keep-alive:30s}") Duration keepAlive) {
+        return pooledRestTemplate(maxConnections, connectTimeout, responseTimeout, keepAlive);
+    }
+
+    /**
+     * DispatchService of the slow lane, the primary one on the configured stock provider with its stock service
+     * lookups made by a client of its own with dispatch.slow-lane.response-timeout, so the slow items do not time out
+     * early. The cache and the materialized view stay shared with the fast lane, the guard does not: slow lookups
+     * would count against its latency threshold, shrinking the limit and opening the breaker of the fast lane.
+     * Its lookups keep feeding the StockLatencyTracker, an item goes back to order.created once they are fast again.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "dispatch.slow-lane.enabled", havingValue = "true")
+    public DispatchService slowLaneDispatchService(
+            DispatchService dispatchService,
+            StockAvailability stockAvailability,
+            StockLatencyTracker latencyTracker,
+            @Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint,
+            @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+            @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${dispatch.slow-lane.response-timeout:10s}") Duration responseTimeout,
+            @Value("${dispatch.stock.http.keep-alive:30s}") Duration keepAlive) {
+        StockServiceClient slowClient = new StockServiceClient(
+                pooledRestTemplate(maxConnections, connectTimeout, responseTimeout, keepAlive),
+                stockServiceEndpoint, null, latencyTracker);
+        return dispatchService.withStockAvailability(stockAvailability.withClient(slowClient));
+    }
+
+    private static RestTemplate pooledRestTemplate(int maxConnections, Duration connectTimeout, Duration responseTimeout,
+                                                   Duration keepAlive) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .setSocketTimeout(Timeout.of(responseTimeout))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                // failed lookups are retried by the listener container's error handler
+                .disableAutomaticRetries()
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
     }
 }
@@ -0,0 +1,258 @@
+package dev.lydtech.dispatch.dedup;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * The order ids dispatched over the last retention period, so that a redelivered order can be skipped before its
+ * stock check and sends.
+ *
+ * Each order id is added to the Bloom filter of the current time bucket, and to a bounded exact set: a ring of the
+ * last maxOrders ids with a hash set over it. An order counts as processed only when a live bucket may contain it
+ * and the exact set does, so a Bloom filter false positive never skips an order, and an order out of the retention
+ * period or evicted from the ring is simply processed again. Most orders are new, and are answered by the Bloom
+ * filters alone without touching the set.
+ *
+ * The filters and the ring live in one buffer, memory-mapped from file when one is given, so that the store
+ * survives a restart (writes reach the page cache, they are only forced to disk on close). A file written with
+ * other sizes is started afresh.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.dedup.enabled", havingValue = "true")
+public class ProcessedOrderStore {
+
+    private static final int MAGIC = 0x44445550;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int BUCKETS_OFFSET = 8;
+    private static final int WORDS_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int CURRENT_BUCKET_OFFSET = 20;
+    private static final int BUCKET_START_OFFSET = 24;
+    private static final int WRITES_OFFSET = 32;
+
+    private static final int HASHES = 7;
+
+    /**
+     * Bits per expected order of a Bloom filter with a 1% false positive rate and HASHES hash functions
+     */
+    private static final double BITS_PER_ORDER = 9.6;
+
+    private static final int ORDER_ID_SIZE = 16;
+
+    private final int buckets;
+    private final int words;
+    private final long bits;
+    private final int capacity;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int ringOffset;
+
+    private final Set<UUID> orderIds;
+
+    @Autowired
+    public ProcessedOrderStore(@Value("${dispatch.dedup.retention:1h}") Duration retention,
+                               @Value("${dispatch.dedup.buckets:6}") int buckets,
+                               @Value("${dispatch.dedup.expected-orders-per-bucket:100000}") int expectedOrdersPerBucket,
+                               @Value("${dispatch.dedup.max-orders:100000}") int maxOrders,
+                               @Value("${dispatch.dedup.file:}") String file) {
+        this(retention, buckets, expectedOrdersPerBucket, maxOrders, file.isBlank() ? null : Path.of(file), System::currentTimeMillis);
+    }
+
+    ProcessedOrderStore(Duration retention, int buckets, int expectedOrdersPerBucket, int maxOrders, Path file,
+                        LongSupplier clock) {
+        this.buckets = buckets;
+        this.words = (int) Math.ceil(expectedOrdersPerBucket * BITS_PER_ORDER / Long.SIZE);
+        this.bits = (long) words * Long.SIZE;
+        this.capacity = maxOrders;
+        this.bucketMillis = Math.max(1, retention.toMillis() / buckets);
+        this.clock = clock;
+        this.ringOffset = HEADER_SIZE + buckets * words * Long.BYTES;
+        int size = ringOffset + capacity * ORDER_ID_SIZE;
+        this.orderIds = new HashSet<>(Math.min(capacity, 1 << 16));
+        if (file == null) {
+            this.channel = null;
+            this.buffer = ByteBuffer.allocate(size);
+            initialise();
+        } else {
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                boolean existing = channel.size() == size;
+                if (!existing) {
+                    channel.truncate(0);
+                }
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (existing && matchesHeader()) {
+                    load();
+                    log.info("Loaded {} processed orders from {}", orderIds.size(), file);
+                } else {
+                    initialise();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map processed order store " + file, e);
+            }
+        }
+    }
+
+    private boolean matchesHeader() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC && buffer.getInt(VERSION_OFFSET) == VERSION
+                && buffer.getInt(BUCKETS_OFFSET) == buckets && buffer.getInt(WORDS_OFFSET) == words
+                && buffer.getInt(CAPACITY_OFFSET) == capacity;
+    }
+
+    private void initialise() {
+        for (int offset = 0; offset < buffer.capacity(); offset += Long.BYTES) {
+            buffer.putLong(offset, 0L);
+        }
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(BUCKETS_OFFSET, buckets);
+        buffer.putInt(WORDS_OFFSET, words);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(CURRENT_BUCKET_OFFSET, 0);
+        buffer.putLong(BUCKET_START_OFFSET, clock.getAsLong());
+        buffer.putLong(WRITES_OFFSET, 0L);
+    }
+
+    private void load() {
+        long stored = Math.min(buffer.getLong(WRITES_OFFSET), capacity);
+        for (int slot = 0; slot < stored; slot++) {
+            orderIds.add(readOrderId(slot));
+        }
+    }
+
+    /**
+     * True when the order was added within the retention period and is still in the exact set
+     */
+    public synchronized boolean contains(UUID orderId) {
+        rotate();
+        long h1 = hash1(orderId);
+        long h2 = hash2(orderId);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (mightContain(bucket, h1, h2)) {
+                return orderIds.contains(orderId);
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(UUID orderId) {
+        rotate();
+        long h1 = hash1(orderId);
+        long h2 = hash2(orderId);
+        int bucket = buffer.getInt(CURRENT_BUCKET_OFFSET);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int offset = wordOffset(bucket, (int) (bit >>> 6));
+            buffer.putLong(offset, buffer.getLong(offset) | 1L << bit);
+        }
+        if (orderIds.add(orderId)) {
+            long writes = buffer.getLong(WRITES_OFFSET);
+            int slot = (int) (writes % capacity);
+            if (writes >= capacity) {
+                orderIds.remove(readOrderId(slot));
+            }
+            buffer.putLong(ringOffset + slot * ORDER_ID_SIZE, orderId.getMostSignificantBits());
+            buffer.putLong(ringOffset + slot * ORDER_ID_SIZE + Long.BYTES, orderId.getLeastSignificantBits());
+            buffer.putLong(WRITES_OFFSET, writes + 1);
+        }
+    }
+
+    public synchronized int size() {
+        return orderIds.size();
+    }
+
+    private boolean mightContain(int bucket, long h1, long h2) {
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((buffer.getLong(wordOffset(bucket, (int) (bit >>> 6))) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves on to a new bucket, clearing the oldest one, each time bucketMillis has elapsed
+     */
+    private void rotate() {
+        long now = clock.getAsLong();
+        long bucketStart = buffer.getLong(BUCKET_START_OFFSET);
+        if (now - bucketStart < bucketMillis) {
+            return;
+        }
+        long elapsedBuckets = (now - bucketStart) / bucketMillis;
+        int current = buffer.getInt(CURRENT_BUCKET_OFFSET);
+        for (long i = 0; i < Math.min(elapsedBuckets, buckets); i++) {
+            current = (current + 1) % buckets;
+            for (int word = 0; word < words; word++) {
+                buffer.putLong(wordOffset(current, word), 0L);
+            }
+        }
+        buffer.putInt(CURRENT_BUCKET_OFFSET, current);
+        buffer.putLong(BUCKET_START_OFFSET, bucketStart + elapsedBuckets * bucketMillis);
+    }
+
+    private int wordOffset(int bucket, int word) {
+        return HEADER_SIZE + (bucket * words + word) * Long.BYTES;
+    }
+
+    private UUID readOrderId(int slot) {
+        int offset = ringOffset + slot * ORDER_ID_SIZE;
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+    }
+
+    private static long hash1(UUID orderId) {
+        return mix(orderId.getMostSignificantBits() ^ Long.rotateLeft(orderId.getLeastSignificantBits(), 32));
+    }
+
+    private static long hash2(UUID orderId) {
+        return mix(orderId.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1L;
+    }
+
+    /**
+     * The finaliser of SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ((MappedByteBuffer) buffer).force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close processed order store: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rebalance listener of the listener containers of order.created.
+ *
+ * The listener engines only return to poll, where rebalances run, once every record of the previous poll is done,
+ * and the container commits the offsets of those records before the revoked partitions are handed over. With the
+ * cooperative-sticky assignor only the partitions that move are revoked, the others keep being processed.
+ * This listener logs the offset each revoked partition is handed over at and counts the partitions that move.
+ * Lost partitions could not be committed: their records after the last commit are delivered again to the new owner.
+ */
+@Slf4j
+@Component
+public class DispatchRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final DispatchMetrics dispatchMetrics;
+
+    public DispatchRebalanceListener(DispatchMetrics dispatchMetrics) {
+        this.dispatchMetrics = dispatchMetrics;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        dispatchMetrics.partitionsAssigned(partitions.size());
+        log.info("Partitions assigned: {}", partitions);
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        dispatchMetrics.partitionsRevoked(partitions.size());
+        Map<String, Long> positions = new TreeMap<>();
+        for (TopicPartition partition : partitions) {
+            try {
+                positions.put(partition.toString(), consumer.position(partition));
+            } catch (RuntimeException e) {
+                log.debug("No position for revoked partition {}", partition, e);
+            }
+        }
+        log.info("Partitions revoked, handed over at offsets: {}", positions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        dispatchMetrics.partitionsLost(partitions.size());
+        log.warn("Partitions lost without a commit, their uncommitted records will be redelivered: {}", partitions);
+    }
+}
@@ -0,0 +1,151 @@
+package dev.lydtech.dispatch.handler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes the records of a poll concurrently across distinct keys, while the records of each key
+ * are processed one after the other in offset order.
+ *
+ * Once a record of a key fails the later records of that key are skipped, so that per key order holds when they
+ * are redelivered. Every record before the first failed one of the poll has completed, so the poll can safely be
+ * committed up to it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "parallel")
+public class KeyOrderedProcessor {
+
+    private final ExecutorService executor;
+
+    private final Duration drainTimeout;
+
+    @Autowired
+    public KeyOrderedProcessor(@Value("${dispatch.parallel.executor:platform}") String executorType,
+                               @Value("${dispatch.parallel.threads:16}") int threads,
+                               @Value("${dispatch.rebalance.drain-timeout:10s}") Duration drainTimeout) {
+        this(createExecutor(executorType, threads), drainTimeout);
+    }
+
+    KeyOrderedProcessor(ExecutorService executor, Duration drainTimeout) {
+        this.executor = executor;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @FunctionalInterface
+    public interface RecordProcessor<K, V> {
+        void process(ConsumerRecord<K, V> record) throws Exception;
+    }
+
+    public <K, V> Result process(List<ConsumerRecord<K, V>> records, RecordProcessor<K, V> processor) {
+        Map<KeyInPartition, List<Integer>> recordsByKey = new LinkedHashMap<>();
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<K, V> record = records.get(index);
+            recordsByKey.computeIfAbsent(new KeyInPartition(record.partition(), record.key()), key -> new ArrayList<>())
+                    .add(index);
+        }
+
+        Exception[] failures = new Exception[records.size()];
+        List<CompletableFuture<Void>> chains = new ArrayList<>(recordsByKey.size());
+
+        for (List<Integer> chain : recordsByKey.values()) {
+            chains.add(CompletableFuture.runAsync(() -> {
+                for (int index : chain) {
+                    try {
+                        processor.process(records.get(index));
+                    } catch (Exception e) {
+                        failures[index] = e;
+                        return;
+                    }
+                }
+            }, executor));
+        }
+        // joining the chains makes their writes to failures visible to this thread
+        CompletableFuture.allOf(chains.toArray(CompletableFuture[]::new)).join();
+
+        return new Result(failures);
+    }
+
+    /**
+     * Lets the records being processed finish, for up to drainTimeout, before the application context goes on
+     * closing the producer they send with
+     */
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Records still being processed after {}, interrupting them", drainTimeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Virtual threads are used when asked for and the JDK supports them (JDK 21+), platform threads otherwise
+     */
+    static ExecutorService createExecutor(String executorType, int threads) {
+        if ("virtual".equalsIgnoreCase(executorType)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}, using {} platform threads",
+                        Runtime.version().feature(), threads);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "key-ordered-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private record KeyInPartition(int partition, Object key) {
+    }
+
+    public static class Result {
+
+        private final Exception[] failures;
+
+        Result(Exception[] failures) {
+            this.failures = failures;
+        }
+
+        /**
+         * Index of the first failed record of the poll, -1 if none failed
+         */
+        public int failedIndex() {
+            for (int index = 0; index < failures.length; index++) {
+                if (failures[index] != null) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        public Exception failure() {
+            int index = failedIndex();
+            return index < 0 ? null : failures[index];
+        }
+    }
+}
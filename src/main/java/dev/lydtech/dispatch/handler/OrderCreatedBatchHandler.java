@@ -0,0 +1,125 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "batch")
+public class OrderCreatedBatchHandler {
+
+    private final DispatchService dispatchService;
+
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final HotPathLog hotPathLog;
+
+    /**
+     * Whether the batch container runs every poll in a Kafka transaction, KafkaTransactionManager does not activate
+     * transaction synchronization so this cannot be told from TransactionSynchronizationManager
+     */
+    private final boolean transactional;
+
+    /**
+     * Attempts of a record failing with a RetryableException in a transaction before it is dead-lettered, the
+     * after rollback processor redelivers a rolled back batch as a whole and never recovers a record of it
+     */
+    private final int maxAttempts;
+
+    /**
+     * The offset of each partition whose record keeps failing in a transaction, the batch stops there until it
+     * succeeds or is dead-lettered, and the attempts made so far
+     */
+    private final Map<TopicPartition, FailedOffset> failedOffsets = new ConcurrentHashMap<>();
+
+    public OrderCreatedBatchHandler(DispatchService dispatchService, DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                    HotPathLog hotPathLog) {
+        this(dispatchService, deadLetterPublishingRecoverer, hotPathLog, false, 4);
+    }
+
+    @Autowired
+    public OrderCreatedBatchHandler(DispatchService dispatchService, DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                    HotPathLog hotPathLog,
+                                    @Value("${dispatch.transactions.enabled:false}") boolean transactional,
+                                    @Value("${dispatch.batch.max-attempts:4}") int maxAttempts) {
+        this.dispatchService = dispatchService;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.hotPathLog = hotPathLog;
+        this.transactional = transactional;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @KafkaListener(
+            id = "orderBatchConsumerClient",
+            topics = "order.created",
+            groupId = "dispatch.order.created.consumer",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void listen(List<ConsumerRecord<String, OrderCreated>> records) {
+        hotPathLog.log(log, "Received Batch - size: {}", records.size());
+
+        int from = 0;
+        while (from < records.size()) {
+            try {
+                dispatchService.processBatch(records.subList(from, records.size()));
+                return;
+            } catch (BatchListenerFailedException e) {
+                int index = from + e.getIndex();
+                Throwable cause = e.getCause();
+                Exception failure;
+                if (cause instanceof RetryableException retryable) {
+                    log.warn("Retryable Exception at index {}: {}", index, cause.getMessage());
+                    if (!transactional || attempt(records.get(index)) < maxAttempts) {
+                        throw new BatchListenerFailedException(e.getMessage(), cause, index);
+                    }
+                    log.error("Retryable Exception at index {} after {} attempts", index, maxAttempts);
+                    failure = retryable;
+                } else {
+                    log.error("Not Retryable Exception at index {}: {}", index, cause.getMessage());
+                    NotRetryableException notRetryable = cause instanceof NotRetryableException
+                            ? (NotRetryableException) cause : new NotRetryableException(cause);
+                    if (!transactional) {
+                        throw new BatchListenerFailedException(e.getMessage(), notRetryable, index);
+                    }
+                    failure = notRetryable;
+                }
+                // a rolled back batch cannot be partially recovered by the container, so dead-letter
+                // the record inside the transaction and carry on with the rest of the batch
+                ConsumerRecord<String, OrderCreated> failed = records.get(index);
+                deadLetterPublishingRecoverer.accept(failed, failure);
+                failedOffsets.remove(new TopicPartition(failed.topic(), failed.partition()));
+                from = index + 1;
+            }
+        }
+    }
+
+    /**
+     * @return the attempts made of the record, this one included
+     */
+    private int attempt(ConsumerRecord<String, OrderCreated> record) {
+        FailedOffset first = new FailedOffset(record.offset(), 1);
+        return failedOffsets.merge(new TopicPartition(record.topic(), record.partition()), first,
+                (previous, next) -> previous.offset() == next.offset()
+                        ? new FailedOffset(next.offset(), previous.attempts() + 1) : next).attempts();
+    }
+
+    private record FailedOffset(long offset, int attempts) {
+    }
+}
@@ -2,10 +2,14 @@ package dev.lydtech.dispatch.handler;
 
 import dev.lydtech.dispatch.exception.NotRetryableException;
 import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.jfr.OrderListenerEvent;
+import dev.lydtech.dispatch.logging.HotPathLog;
 import dev.lydtech.dispatch.message.OrderCreated;
 import dev.lydtech.dispatch.service.DispatchService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -13,12 +17,35 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 
 @Slf4j
-@RequiredArgsConstructor
 @Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "record", matchIfMissing = true)
 public class OrderCreatedHandler {
 
     private final DispatchService dispatchService;
 
+    private final HotPathLog hotPathLog;
+
+    /**
+     * Forwards the orders of slow items to order.created.slow; null when dispatch.slow-lane.enabled is false
+     */
+    private final SlowLaneRouter slowLaneRouter;
+
+    public OrderCreatedHandler(DispatchService dispatchService, HotPathLog hotPathLog) {
+        this(dispatchService, hotPathLog, (SlowLaneRouter) null);
+    }
+
+    OrderCreatedHandler(DispatchService dispatchService, HotPathLog hotPathLog, SlowLaneRouter slowLaneRouter) {
+        this.dispatchService = dispatchService;
+        this.hotPathLog = hotPathLog;
+        this.slowLaneRouter = slowLaneRouter;
+    }
+
+    @Autowired
+    public OrderCreatedHandler(DispatchService dispatchService, HotPathLog hotPathLog,
+                               ObjectProvider<SlowLaneRouter> slowLaneRouter) {
+        this(dispatchService, hotPathLog, slowLaneRouter.getIfAvailable());
+    }
+
     @KafkaListener(
             id = "orderConsumerClient",
             topics = "order.created",
@@ -28,15 +55,24 @@ public class OrderCreatedHandler {
     public void listen(@Header(KafkaHeaders.RECEIVED_PARTITION) Integer partition,
                        @Header(KafkaHeaders.RECEIVED_KEY) String key,
                        @Payload OrderCreated payload) {
-        log.info("Received Message - partition: {} - key: {} - payload: {}", partition, key, payload);
-
+        OrderListenerEvent event = new OrderListenerEvent();
+        event.begin();
         try {
-            dispatchService.process(key, payload);
+            hotPathLog.log(log, "Received Message - partition: {} - key: {} - orderId: {} - item: {}",
+                    partition, key, payload.getOrderId(), payload.getItem());
+            if (slowLaneRouter != null && slowLaneRouter.reroute(key, payload)) {
+                event.end(partition, payload, "rerouted");
+                return;
+            }
+            dispatchService.process(partition, key, payload);
+            event.end(partition, payload, "success");
         } catch (RetryableException e) {
-            log.warn("Retryable Exception: {}", e.getMessage());
+            event.end(partition, payload, "retryable");
+            log.warn("Retryable Exception - partition: {} - key: {} - payload: {}: {}", partition, key, payload, e.getMessage());
             throw e;
         } catch (Exception e) {
-            log.error("Not Retryable Exception: {}", e.getMessage());
+            event.end(partition, payload, "failure");
+            log.error("Not Retryable Exception - partition: {} - key: {} - payload: {}: {}", partition, key, payload, e.getMessage());
             throw new NotRetryableException(e);
         }
     }
@@ -0,0 +1,84 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Dispatches the records of a poll in parallel across order keys, keeping the order of the records of each key.
+ *
+ * On failure the first failed record of the poll is handed to the error handler, which commits the records before it
+ * and seeks back to it. Every record before the first failed one has completed, so no offset is committed past a
+ * record that did not; completed records after it are redelivered with it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "parallel")
+public class OrderCreatedParallelHandler {
+
+    private final DispatchService dispatchService;
+
+    private final KeyOrderedProcessor keyOrderedProcessor;
+
+    private final HotPathLog hotPathLog;
+
+    public OrderCreatedParallelHandler(DispatchService dispatchService, KeyOrderedProcessor keyOrderedProcessor,
+                                       HotPathLog hotPathLog,
+                                       @Value("${dispatch.transactions.enabled:false}") boolean transactional) {
+        if (transactional) {
+            // the sends would run on the processor's threads, outside of the consumer thread's transaction
+            throw new IllegalStateException("The parallel engine does not support dispatch.transactions.enabled");
+        }
+        this.dispatchService = dispatchService;
+        this.keyOrderedProcessor = keyOrderedProcessor;
+        this.hotPathLog = hotPathLog;
+    }
+
+    @KafkaListener(
+            id = "orderParallelConsumerClient",
+            topics = "order.created",
+            groupId = "dispatch.order.created.consumer",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void listen(List<ConsumerRecord<String, OrderCreated>> records) {
+        hotPathLog.log(log, "Received Batch - size: {}", records.size());
+
+        KeyOrderedProcessor.Result result = keyOrderedProcessor.process(records, this::process);
+
+        int index = result.failedIndex();
+        if (index < 0) {
+            return;
+        }
+        Exception cause = result.failure();
+        if (cause instanceof RetryableException) {
+            log.warn("Retryable Exception at index {}: {}", index, cause.getMessage());
+        } else {
+            log.error("Not Retryable Exception at index {}: {}", index, cause.getMessage());
+        }
+        throw new BatchListenerFailedException(cause.getMessage(), cause, index);
+    }
+
+    private void process(ConsumerRecord<String, OrderCreated> record) {
+        if (record.value() == null) {
+            throw new NotRetryableException("Message could not be deserialized");
+        }
+        try {
+            dispatchService.process(record.partition(), record.key(), record.value());
+        } catch (RetryableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new NotRetryableException(e);
+        }
+    }
+}
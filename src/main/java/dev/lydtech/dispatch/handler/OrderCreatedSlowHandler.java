@@ -0,0 +1,63 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.jfr.OrderListenerEvent;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.service.DispatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dispatches the orders rerouted to order.created.slow by the SlowLaneRouter, with more consumers and a longer
+ * stock service timeout than the order.created listener. Its own consumer group is not paused by backpressure.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.slow-lane.enabled", havingValue = "true")
+public class OrderCreatedSlowHandler {
+
+    private final DispatchService dispatchService;
+
+    private final HotPathLog hotPathLog;
+
+    public OrderCreatedSlowHandler(@Qualifier("slowLaneDispatchService") DispatchService dispatchService,
+                                   HotPathLog hotPathLog) {
+        this.dispatchService = dispatchService;
+        this.hotPathLog = hotPathLog;
+    }
+
+    @KafkaListener(
+            id = "orderSlowConsumerClient",
+            topics = SlowLaneRouter.SLOW_LANE_TOPIC,
+            groupId = "dispatch.order.created.slow.consumer",
+            containerFactory = "slowLaneKafkaListenerContainerFactory"
+    )
+    public void listen(@Header(KafkaHeaders.RECEIVED_PARTITION) Integer partition,
+                       @Header(KafkaHeaders.RECEIVED_KEY) String key,
+                       @Payload OrderCreated payload) {
+        OrderListenerEvent event = new OrderListenerEvent();
+        event.begin();
+        try {
+            hotPathLog.log(log, "Received Slow Lane Message - partition: {} - key: {} - orderId: {} - item: {}",
+                    partition, key, payload.getOrderId(), payload.getItem());
+            dispatchService.process(partition, key, payload);
+            event.end(partition, payload, "success");
+        } catch (RetryableException e) {
+            event.end(partition, payload, "retryable");
+            log.warn("Retryable Exception - partition: {} - key: {} - payload: {}: {}", partition, key, payload, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            event.end(partition, payload, "failure");
+            log.error("Not Retryable Exception - partition: {} - key: {} - payload: {}: {}", partition, key, payload, e.getMessage());
+            throw new NotRetryableException(e);
+        }
+    }
+}
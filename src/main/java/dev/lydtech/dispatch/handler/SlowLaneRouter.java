@@ -0,0 +1,58 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.client.StockLatencyTracker;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Forwards the orders of items whose stock lookups have become slow to order.created.slow, so that they do not
+ * hold back the orders behind them on order.created.
+ *
+ * The order keeps its key, its orders on order.created.slow stay in order, but an order of the same key arriving
+ * on order.created while its item is fast again can be dispatched before it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.slow-lane.enabled", havingValue = "true")
+public class SlowLaneRouter {
+
+    public static final String SLOW_LANE_TOPIC = "order.created.slow";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final StockLatencyTracker latencyTracker;
+
+    private final HotPathLog hotPathLog;
+
+    private final Counter rerouted;
+
+    public SlowLaneRouter(KafkaTemplate<String, Object> kafkaTemplate, StockLatencyTracker latencyTracker,
+                          HotPathLog hotPathLog, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.latencyTracker = latencyTracker;
+        this.hotPathLog = hotPathLog;
+        this.rerouted = Counter.builder("dispatch.slow-lane.rerouted")
+                .description("Orders forwarded to " + SLOW_LANE_TOPIC + " as the stock lookups of their item are slow")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true when the order was forwarded to the slow lane and must not be dispatched by the caller
+     */
+    public boolean reroute(String key, OrderCreated orderCreated) throws Exception {
+        if (orderCreated.getItem() == null || !latencyTracker.isSlow(orderCreated.getItem())) {
+            return false;
+        }
+        kafkaTemplate.send(SLOW_LANE_TOPIC, key, orderCreated).get();
+        rerouted.increment();
+        hotPathLog.log(log, "Rerouted to the slow lane - key: {} - orderId: {} - item: {}",
+                key, orderCreated.getOrderId(), orderCreated.getItem());
+        return true;
+    }
+}
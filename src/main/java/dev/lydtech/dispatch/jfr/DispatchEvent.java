@@ -0,0 +1,41 @@
+package dev.lydtech.dispatch.jfr;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Fields shared by the JFR events of the dispatch of an order.
+ *
+ * An event is created and begun before the step, and ended with end(partition, orderCreated, result): the fields
+ * are only filled in and the event committed when a recording enables it and it lasted longer than its threshold,
+ * so that otherwise the JIT can drop the event object altogether. Thresholds default to the annotated ones and can
+ * be set per recording, e.g. -XX:StartFlightRecording:dev.lydtech.dispatch.StockCheck#threshold=50ms
+ */
+public abstract class DispatchEvent extends Event {
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Partition")
+    int partition;
+
+    @Label("Item")
+    String item;
+
+    @Label("Result")
+    String result;
+
+    public void end(int partition, OrderCreated orderCreated, String result) {
+        end();
+        if (shouldCommit()) {
+            this.partition = partition;
+            if (orderCreated != null) {
+                this.orderId = String.valueOf(orderCreated.getOrderId());
+                this.item = orderCreated.getItem();
+            }
+            this.result = result;
+            commit();
+        }
+    }
+}
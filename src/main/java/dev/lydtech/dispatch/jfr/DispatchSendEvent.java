@@ -0,0 +1,34 @@
+package dev.lydtech.dispatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The send of a dispatch event of an order, from the call to the producer to the broker's acknowledgement,
+ * recorded when it takes longer than the threshold. The result is success or failure.
+ */
+@Name(DispatchSendEvent.NAME)
+@Label("Dispatch Send")
+@Category("Dispatch")
+@Description("Send of a dispatch event until its acknowledgement")
+@Threshold("10 ms")
+@StackTrace(false)
+public class DispatchSendEvent extends DispatchEvent {
+
+    public static final String NAME = "dev.lydtech.dispatch.Send";
+
+    @Label("Topic")
+    String topic;
+
+    @Label("Message")
+    String message;
+
+    public DispatchSendEvent(String topic, Object message) {
+        this.topic = topic;
+        this.message = message.getClass().getSimpleName();
+    }
+}
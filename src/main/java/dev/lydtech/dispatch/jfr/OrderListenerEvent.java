@@ -0,0 +1,23 @@
+package dev.lydtech.dispatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A listener invocation for an OrderCreated record, recorded when it takes longer than the threshold. The result
+ * is success, retryable, failure or rerouted (to the slow lane).
+ */
+@Name(OrderListenerEvent.NAME)
+@Label("Order Listener")
+@Category("Dispatch")
+@Description("Listener invocation for an OrderCreated record, stock check and sends included")
+@Threshold("20 ms")
+@StackTrace(false)
+public class OrderListenerEvent extends DispatchEvent {
+
+    public static final String NAME = "dev.lydtech.dispatch.OrderListener";
+}
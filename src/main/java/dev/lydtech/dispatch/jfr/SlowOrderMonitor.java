@@ -0,0 +1,124 @@
+package dev.lydtech.dispatch.jfr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams the dispatch JFR events in-app and reports every order whose listener invocation took longer than
+ * slow-order-threshold, along with its stock checks and sends slower than stage-threshold and the GC pauses that
+ * overlapped it, so that a slow order can be told apart as a slow stock service, a broker stall or a GC pause.
+ *
+ * Events are correlated once per flush of the stream (about every second), as the events of the different threads
+ * of a flush are not delivered in end time order. Stages and GC pauses are kept for RETENTION, longer than a flush.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.jfr.monitor.enabled", havingValue = "true")
+public class SlowOrderMonitor {
+
+    private static final Duration RETENTION = Duration.ofSeconds(10);
+
+    private static final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+
+    private final RecordingStream stream;
+
+    private final Consumer<SlowOrder> reporter;
+
+    private final List<RecordedEvent> slowOrders = new ArrayList<>();
+
+    private final Deque<RecordedEvent> stages = new ArrayDeque<>();
+
+    private final Deque<RecordedEvent> pauses = new ArrayDeque<>();
+
+    public record SlowOrder(String orderId, int partition, String item, String result, Duration duration,
+                            Duration stockChecks, Duration sends, Duration gcPauses) {
+    }
+
+    @Autowired
+    public SlowOrderMonitor(@Value("${dispatch.jfr.monitor.slow-order-threshold:500ms}") Duration slowOrderThreshold,
+                            @Value("${dispatch.jfr.monitor.stage-threshold:100ms}") Duration stageThreshold,
+                            MeterRegistry meterRegistry) {
+        this(slowOrderThreshold, stageThreshold, logAndCount(Counter.builder("dispatch.jfr.slow-orders")
+                .description("Orders whose listener invocation took longer than the slow order threshold")
+                .register(meterRegistry)));
+    }
+
+    SlowOrderMonitor(Duration slowOrderThreshold, Duration stageThreshold, Consumer<SlowOrder> reporter) {
+        this.reporter = reporter;
+        this.stream = new RecordingStream();
+        stream.enable(OrderListenerEvent.NAME).withThreshold(slowOrderThreshold);
+        stream.enable(StockCheckEvent.NAME).withThreshold(stageThreshold);
+        stream.enable(DispatchSendEvent.NAME).withThreshold(stageThreshold);
+        stream.enable(GARBAGE_COLLECTION);
+        stream.onEvent(OrderListenerEvent.NAME, slowOrders::add);
+        stream.onEvent(StockCheckEvent.NAME, stages::add);
+        stream.onEvent(DispatchSendEvent.NAME, stages::add);
+        stream.onEvent(GARBAGE_COLLECTION, pauses::add);
+        stream.onFlush(this::correlate);
+        stream.startAsync();
+        log.info("Monitoring orders slower than {} with JFR", slowOrderThreshold);
+    }
+
+    private static Consumer<SlowOrder> logAndCount(Counter counter) {
+        return slowOrder -> {
+            counter.increment();
+            log.warn("Slow order {} on partition {} (item {}, {}): {} ms, slow stock checks {} ms, slow sends {} ms, GC pauses {} ms",
+                    slowOrder.orderId(), slowOrder.partition(), slowOrder.item(), slowOrder.result(),
+                    slowOrder.duration().toMillis(), slowOrder.stockChecks().toMillis(), slowOrder.sends().toMillis(),
+                    slowOrder.gcPauses().toMillis());
+        };
+    }
+
+    /**
+     * Runs on the thread of the stream, as do the event handlers
+     */
+    private void correlate() {
+        for (RecordedEvent order : slowOrders) {
+            String orderId = order.getString("orderId");
+            Duration stockChecks = Duration.ZERO;
+            Duration sends = Duration.ZERO;
+            for (RecordedEvent stage : stages) {
+                if (orderId != null && orderId.equals(stage.getString("orderId"))) {
+                    if (stage.getEventType().getName().equals(StockCheckEvent.NAME)) {
+                        stockChecks = stockChecks.plus(stage.getDuration());
+                    } else {
+                        sends = sends.plus(stage.getDuration());
+                    }
+                }
+            }
+            Duration gcPauses = Duration.ZERO;
+            for (RecordedEvent pause : pauses) {
+                if (pause.getStartTime().isBefore(order.getEndTime()) && pause.getEndTime().isAfter(order.getStartTime())) {
+                    gcPauses = gcPauses.plus(pause.getDuration("sumOfPauses"));
+                }
+            }
+            reporter.accept(new SlowOrder(orderId, order.getInt("partition"), order.getString("item"),
+                    order.getString("result"), order.getDuration(), stockChecks, sends, gcPauses));
+        }
+        slowOrders.clear();
+        Instant retainedFrom = Instant.now().minus(RETENTION);
+        stages.removeIf(stage -> stage.getEndTime().isBefore(retainedFrom));
+        pauses.removeIf(pause -> pause.getEndTime().isBefore(retainedFrom));
+    }
+
+    @PreDestroy
+    public void close() {
+        stream.close();
+    }
+}
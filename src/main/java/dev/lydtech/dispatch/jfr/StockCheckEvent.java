@@ -0,0 +1,23 @@
+package dev.lydtech.dispatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A stock availability check of an order, recorded when it takes longer than the threshold. The result is
+ * available, unavailable or error.
+ */
+@Name(StockCheckEvent.NAME)
+@Label("Stock Check")
+@Category("Dispatch")
+@Description("Stock availability check of the item of an order")
+@Threshold("10 ms")
+@StackTrace(false)
+public class StockCheckEvent extends DispatchEvent {
+
+    public static final String NAME = "dev.lydtech.dispatch.StockCheck";
+}
@@ -0,0 +1,161 @@
+package dev.lydtech.dispatch.logging;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Logging of the per-message path of the dispatch.
+ *
+ * Per-message lines are logged at debug. With debug off at most sampledPerSecond of them a second are logged at
+ * info, and the others are neither formatted nor given an argument array. The outcome of every order is counted
+ * per partition instead, and the counts logged as one summary line per summaryInterval.
+ *
+ * Only the lines of orders processed normally go through here: failures, retries and dead letters are logged in
+ * full where they are handled.
+ */
+@Slf4j
+@Component
+public class HotPathLog {
+
+    public enum Outcome {
+        DISPATCHED, UNAVAILABLE, DUPLICATE, RETRYABLE, FAILED
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final long sampleIntervalNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong nextSample;
+
+    private final Duration summaryInterval;
+
+    private final Map<Integer, LongAdder[]> outcomes = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public HotPathLog(@Value("${dispatch.logging.sampled-per-second:1}") int sampledPerSecond,
+                      @Value("${dispatch.logging.summary-interval:30s}") Duration summaryInterval) {
+        this(sampledPerSecond, summaryInterval, System::nanoTime);
+        if (!summaryInterval.isZero()) {
+            scheduler.scheduleAtFixedRate(this::logSummary, summaryInterval.toNanos(), summaryInterval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    HotPathLog(int sampledPerSecond, Duration summaryInterval, LongSupplier nanoClock) {
+        this.sampleIntervalNanos = sampledPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / sampledPerSecond : -1;
+        this.nanoClock = nanoClock;
+        this.nextSample = new AtomicLong(nanoClock.getAsLong());
+        this.summaryInterval = summaryInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dispatch-log-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void log(Logger logger, String format, Object arg) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(format, arg);
+        } else if (logger.isInfoEnabled() && sample()) {
+            logger.info(format, arg);
+        }
+    }
+
+    public void log(Logger logger, String format, Object arg1, Object arg2, Object arg3) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(format, arg1, arg2, arg3);
+        } else if (logger.isInfoEnabled() && sample()) {
+            logger.info(format, arg1, arg2, arg3);
+        }
+    }
+
+    public void log(Logger logger, String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(format, arg1, arg2, arg3, arg4);
+        } else if (logger.isInfoEnabled() && sample()) {
+            logger.info(format, arg1, arg2, arg3, arg4);
+        }
+    }
+
+    /**
+     * True at most once per sample interval, for whichever thread gets there first
+     */
+    boolean sample() {
+        if (sampleIntervalNanos < 0) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        long next = nextSample.get();
+        return now - next >= 0 && nextSample.compareAndSet(next, now + sampleIntervalNanos);
+    }
+
+    public void outcome(int partition, Outcome outcome) {
+        LongAdder[] counts = outcomes.get(partition);
+        if (counts == null) {
+            counts = outcomes.computeIfAbsent(partition, p -> {
+                LongAdder[] adders = new LongAdder[OUTCOMES.length];
+                for (int i = 0; i < adders.length; i++) {
+                    adders[i] = new LongAdder();
+                }
+                return adders;
+            });
+        }
+        counts[outcome.ordinal()].increment();
+    }
+
+    private void logSummary() {
+        String summary = summary();
+        if (summary != null) {
+            log.info(summary);
+        }
+    }
+
+    /**
+     * The outcome counts per partition since the previous summary, null when there were none
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder("Orders in the last ").append(summaryInterval.toSeconds()).append("s");
+        boolean any = false;
+        for (Map.Entry<Integer, LongAdder[]> partition : new TreeMap<>(outcomes).entrySet()) {
+            long[] counts = new long[OUTCOMES.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = partition.getValue()[i].sumThenReset();
+                total += counts[i];
+            }
+            if (total == 0) {
+                continue;
+            }
+            any = true;
+            summary.append(" - partition ").append(partition.getKey()).append(':');
+            for (int i = 0; i < counts.length; i++) {
+                summary.append(i == 0 ? " " : ", ").append(OUTCOMES[i].name().toLowerCase()).append(' ').append(counts[i]);
+            }
+        }
+        return any ? summary.toString() : null;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+        logSummary();
+    }
+}
@@ -0,0 +1,28 @@
+package dev.lydtech.dispatch.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Tracking event of a dispatched order in the coalesced tracking mode, standing for both the DispatchPreparing
+ * and the DispatchCompleted of the order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchTracked {
+
+    /**
+     * Version of the tracking events, 1 being DispatchPreparing followed by DispatchCompleted
+     */
+    int version;
+
+    UUID orderId;
+
+    String dispatchedDate;
+}
@@ -1,5 +1,6 @@
 package dev.lydtech.dispatch.message;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,11 +12,15 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderDispached {
 
     UUID orderId;
 
     UUID processedById;
 
+    /**
+     * Left out when dispatch.tracking.compact-order-dispatched is true
+     */
     String notes;
 }
@@ -0,0 +1,324 @@
+package dev.lydtech.dispatch.metrics;
+
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderDispached;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.kafka.support.serializer.FailedDeserializationInfo;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Micrometer meters of each stage of the dispatch of an order.
+ *
+ * Every meter is registered up front (the in-flight gauge once per partition), so that recording on the hot path
+ * is a lookup-free update of an existing meter and allocates nothing per message.
+ */
+@Component
+public class DispatchMetrics {
+
+    private static final String DLT_SUFFIX = ".DLT";
+
+    private static final String RETRY_TOPIC_INFIX = "-retry";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter deserializationErrors;
+
+    private final Timer stockAvailable;
+
+    private final Timer stockUnavailable;
+
+    private final Timer stockFailed;
+
+    private final Timer[] sends = new Timer[4];
+
+    private final Counter[] sendErrors = new Counter[4];
+
+    private final Timer processSuccess;
+
+    private final Timer processFailure;
+
+    private final Timer processBatch;
+
+    private final Counter retries;
+
+    private final Counter deadLettered;
+
+    private final Counter duplicates;
+
+    private final Counter partitionsAssigned;
+
+    private final Counter partitionsRevoked;
+
+    private final Counter partitionsLost;
+
+    private final Map<String, Map<Integer, AtomicInteger>> inFlight = new ConcurrentHashMap<>();
+
+    public DispatchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.deserializationErrors = Counter.builder("dispatch.deserialization.errors")
+                .description("Records whose value could not be deserialized")
+                .register(meterRegistry);
+        this.stockAvailable = stockCheckTimer("available");
+        this.stockUnavailable = stockCheckTimer("unavailable");
+        this.stockFailed = stockCheckTimer("error");
+        String[] events = {"dispatch-preparing", "order-dispatched", "dispatch-completed", "dispatch-tracked"};
+        for (int i = 0; i < events.length; i++) {
+            sends[i] = Timer.builder("dispatch.send")
+                    .description("Time from the send of a dispatch event to its acknowledgement")
+                    .tag("event", events[i])
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            sendErrors[i] = Counter.builder("dispatch.send.errors").tag("event", events[i]).register(meterRegistry);
+        }
+        this.processSuccess = processTimer("success");
+        this.processFailure = processTimer("failure");
+        this.processBatch = Timer.builder("dispatch.process.batch")
+                .description("Processing time of a poll by the batch engine")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.retries = Counter.builder("dispatch.retries")
+                .description("Redeliveries scheduled by the error handler or through the retry topics")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("dispatch.dlt.published")
+                .description("Records published to a dead letter topic")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("dispatch.dedup.skipped")
+                .description("Orders skipped as already dispatched")
+                .register(meterRegistry);
+        this.partitionsAssigned = rebalanceCounter("assigned");
+        this.partitionsRevoked = rebalanceCounter("revoked");
+        this.partitionsLost = rebalanceCounter("lost");
+    }
+
+    private Counter rebalanceCounter(String event) {
+        return Counter.builder("dispatch.rebalance.partitions")
+                .description("Partitions assigned to, revoked from or lost by the listener consumers")
+                .tag("event", event)
+                .register(meterRegistry);
+    }
+
+    private Timer stockCheckTimer(String result) {
+        return Timer.builder("dispatch.stock.check")
+                .description("Stock availability checks")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer processTimer(String result) {
+        return Timer.builder("dispatch.process")
+                .description("Processing time of an OrderCreated record, stock check and sends included")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void stockChecked(long startNanos, boolean available) {
+        (available ? stockAvailable : stockUnavailable).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stockCheckFailed(long startNanos) {
+        stockFailed.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void processed(long startNanos, boolean success) {
+        (success ? processSuccess : processFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void batchProcessed(long startNanos) {
+        processBatch.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void duplicateSkipped() {
+        duplicates.increment();
+    }
+
+    public void partitionsAssigned(int count) {
+        partitionsAssigned.increment(count);
+    }
+
+    public void partitionsRevoked(int count) {
+        partitionsRevoked.increment(count);
+    }
+
+    public void partitionsLost(int count) {
+        partitionsLost.increment(count);
+    }
+
+    /**
+     * Failed deserialization function of the ErrorHandlingDeserializer: counts the record, which stays a poison pill
+     */
+    public <T> Function<FailedDeserializationInfo, T> deserializationErrorCounter() {
+        return info -> {
+            deserializationErrors.increment();
+            return null;
+        };
+    }
+
+    /**
+     * Counts every redelivery the error handler schedules with the given back off
+     */
+    public BackOff countingRetries(BackOff backOff) {
+        return () -> {
+            BackOffExecution execution = backOff.start();
+            return () -> {
+                long interval = execution.nextBackOff();
+                if (interval != BackOffExecution.STOP) {
+                    retries.increment();
+                }
+                return interval;
+            };
+        };
+    }
+
+    /**
+     * Times the acknowledgement of the dispatch events sent as TimedProducerRecords from the System.nanoTime() taken
+     * before they were handed to the producer, so neither the clock of the broker nor that of the host skews it.
+     * Counts the dispatch events that failed to send, and the records forwarded to the retry topics and to the dead
+     * letter topics.
+     */
+    public <K, V> ProducerListener<K, V> producerListener() {
+        return new ProducerListener<>() {
+            @Override
+            public void onSuccess(ProducerRecord<K, V> record, RecordMetadata metadata) {
+                int event = event(record.value());
+                if (event >= 0) {
+                    if (record instanceof TimedProducerRecord<K, V> timed) {
+                        sends[event].record(System.nanoTime() - timed.startNanos(), TimeUnit.NANOSECONDS);
+                    }
+                } else if (record.topic().endsWith(DLT_SUFFIX)) {
+                    deadLettered.increment();
+                } else if (record.topic().contains(RETRY_TOPIC_INFIX)) {
+                    retries.increment();
+                }
+            }
+
+            @Override
+            public void onError(ProducerRecord<K, V> record, RecordMetadata metadata, Exception exception) {
+                int event = event(record.value());
+                if (event >= 0) {
+                    sendErrors[event].increment();
+                }
+            }
+        };
+    }
+
+    private static int event(Object value) {
+        if (value instanceof DispatchPreparing) {
+            return 0;
+        }
+        if (value instanceof OrderDispached) {
+            return 1;
+        }
+        if (value instanceof DispatchCompleted) {
+            return 2;
+        }
+        if (value instanceof DispatchTracked) {
+            return 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Keeps the dispatch.in-flight gauge of each partition: records handed to a listener and not yet done with
+     */
+    public <K, V> InFlightInterceptor<K, V> inFlightInterceptor() {
+        return new InFlightInterceptor<>();
+    }
+
+    int inFlight(String topic, int partition) {
+        return inFlightCount(topic, partition).get();
+    }
+
+    /**
+     * Records of all partitions handed to a listener and not yet done with
+     */
+    public int inFlight() {
+        int total = 0;
+        for (Map<Integer, AtomicInteger> partitions : inFlight.values()) {
+            for (AtomicInteger count : partitions.values()) {
+                total += count.get();
+            }
+        }
+        return total;
+    }
+
+    private AtomicInteger inFlightCount(String topic, int partition) {
+        Map<Integer, AtomicInteger> partitions = inFlight.get(topic);
+        if (partitions == null) {
+            partitions = inFlight.computeIfAbsent(topic, t -> new ConcurrentHashMap<>());
+        }
+        AtomicInteger count = partitions.get(partition);
+        if (count == null) {
+            count = partitions.computeIfAbsent(partition, p -> registerInFlight(topic, p));
+        }
+        return count;
+    }
+
+    private AtomicInteger registerInFlight(String topic, int partition) {
+        AtomicInteger count = new AtomicInteger();
+        Gauge.builder("dispatch.in-flight", count, AtomicInteger::get)
+                .description("Records of the partition being processed")
+                .tag("topic", topic)
+                .tag("partition", String.valueOf(partition))
+                .register(meterRegistry);
+        return count;
+    }
+
+    public class InFlightInterceptor<K, V> implements RecordInterceptor<K, V>, BatchInterceptor<K, V> {
+
+        @Override
+        public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+            inFlightCount(record.topic(), record.partition()).incrementAndGet();
+            return record;
+        }
+
+        @Override
+        public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+            inFlightCount(record.topic(), record.partition()).decrementAndGet();
+        }
+
+        @Override
+        public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+            records.partitions().forEach(partition ->
+                    inFlightCount(partition.topic(), partition.partition()).addAndGet(records.records(partition).size()));
+            return records;
+        }
+
+        @Override
+        public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+            done(records);
+        }
+
+        @Override
+        public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+            done(records);
+        }
+
+        private void done(ConsumerRecords<K, V> records) {
+            records.partitions().forEach(partition ->
+                    inFlightCount(partition.topic(), partition.partition()).addAndGet(-records.records(partition).size()));
+        }
+    }
+}
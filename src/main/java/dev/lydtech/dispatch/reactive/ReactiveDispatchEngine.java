@@ -0,0 +1,320 @@
+package dev.lydtech.dispatch.reactive;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.metrics.TimedProducerRecord;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.GroupedFlux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.util.retry.Retry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+
+/**
+ * Reactive engine, used when dispatch.engine=reactive in place of the listener containers: order.created is read
+ * with a reactor-kafka KafkaReceiver, stock is checked with the non-blocking ReactiveStockClient and the dispatch
+ * events are sent with a KafkaSender, so an order in flight holds no thread.
+ *
+ * Each partition dispatches up to concurrencyPerPartition orders at once, and stops requesting records, which
+ * pauses the consumer, while that many are in flight. The orders of a key are dispatched one after the other.
+ * An offset is only acknowledged once its order and every order before it in the partition are done, so the
+ * committed offsets never skip an order still in flight.
+ *
+ * Retryable failures are retried retryAttempts times with a fixed retryBackoff, without holding back the other
+ * orders of the partition; orders failing otherwise, or out of attempts, are sent to order.created.DLT, as are the
+ * records that could not be deserialized.
+ * Transactions are not supported: delivery is at-least-once, as with the record engine.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "reactive")
+public class ReactiveDispatchEngine implements SmartLifecycle {
+
+    private static final String ORDER_CREATED_TOPIC = "order.created";
+    private static final String ORDER_CREATED_DLT_TOPIC = "order.created.DLT";
+
+    private static final String GROUP_ID = "dispatch.order.created.consumer";
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(ReactiveDispatchEngine.class);
+
+    private final ReceiverOptions<String, Object> receiverOptions;
+
+    private final KafkaSender<String, Object> sender;
+
+    private final Function<String, Mono<Boolean>> stockLookup;
+
+    private final DispatchEvents dispatchEvents;
+
+    private final int concurrencyPerPartition;
+
+    private final int retryAttempts;
+
+    private final Duration retryBackoff;
+
+    private final DispatchMetrics dispatchMetrics;
+
+    private final ProducerListener<String, Object> producerListener;
+
+    private final HotPathLog hotPathLog;
+
+    private volatile Disposable subscription;
+
+    /**
+     * The receiver and the sender are configured as the consumer and producer factories of the other engines,
+     * and read from the same consumer group
+     */
+    @Autowired
+    public ReactiveDispatchEngine(ConsumerFactory<String, Object> consumerFactory,
+                                  ProducerFactory<String, Object> producerFactory,
+                                  ReactiveStockClient stockClient,
+                                  DispatchEvents dispatchEvents,
+                                  DispatchMetrics dispatchMetrics,
+                                  HotPathLog hotPathLog,
+                                  @Value("${dispatch.reactive.concurrency-per-partition:256}") int concurrencyPerPartition,
+                                  @Value("${dispatch.reactive.max-in-flight-sends:1024}") int maxInFlightSends,
+                                  @Value("${dispatch.reactive.commit-interval:100ms}") Duration commitInterval,
+                                  @Value("${dispatch.rebalance.drain-timeout:10s}") Duration drainTimeout,
+                                  @Value("${dispatch.reactive.retry.attempts:4}") int retryAttempts,
+                                  @Value("${dispatch.reactive.retry.backoff:100ms}") Duration retryBackoff) {
+        this(receiverOptions(consumerFactory, commitInterval, drainTimeout),
+                KafkaSender.create(SenderOptions.<String, Object>create(producerFactory.getConfigurationProperties())
+                        .maxInFlight(maxInFlightSends)),
+                stockClient::checkAvailable, dispatchEvents, concurrencyPerPartition, retryAttempts, retryBackoff, dispatchMetrics, hotPathLog);
+    }
+
+    ReactiveDispatchEngine(ReceiverOptions<String, Object> receiverOptions, KafkaSender<String, Object> sender,
+                           Function<String, Mono<Boolean>> stockLookup, DispatchEvents dispatchEvents, int concurrencyPerPartition,
+                           int retryAttempts, Duration retryBackoff, DispatchMetrics dispatchMetrics, HotPathLog hotPathLog) {
+        this.receiverOptions = receiverOptions;
+        this.sender = sender;
+        this.stockLookup = stockLookup;
+        this.dispatchEvents = dispatchEvents;
+        this.concurrencyPerPartition = concurrencyPerPartition;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = retryBackoff;
+        this.dispatchMetrics = dispatchMetrics;
+        this.producerListener = dispatchMetrics.producerListener();
+        this.hotPathLog = hotPathLog;
+    }
+
+    /**
+     * A rebalance revoking partitions is held back up to drainTimeout while the orders of those partitions already
+     * received complete, and their offsets are committed, so that the new owner does not dispatch them again
+     */
+    private static ReceiverOptions<String, Object> receiverOptions(ConsumerFactory<String, Object> consumerFactory,
+                                                                   Duration commitInterval, Duration drainTimeout) {
+        Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
+        ReceiverOptions<String, Object> options = ReceiverOptions.<String, Object>create(config)
+                .withKeyDeserializer(new StringDeserializer())
+                .commitInterval(commitInterval)
+                .maxDelayRebalance(drainTimeout)
+                .commitIntervalDuringDelay(commitInterval.toMillis())
+                .subscription(List.of(ORDER_CREATED_TOPIC))
+                .addAssignListener(partitions -> log.info("Partitions assigned: {}", partitions))
+                .addRevokeListener(partitions -> log.info("Partitions revoked: {}", partitions));
+        // the ErrorHandlingDeserializer counting the poison pills, configured here as the receiver does not
+        Deserializer<Object> valueDeserializer = consumerFactory.getValueDeserializer();
+        if (valueDeserializer != null) {
+            valueDeserializer.configure(config, false);
+            options = options.withValueDeserializer(valueDeserializer);
+        }
+        return options;
+    }
+
+    /**
+     * Started with the listener containers, after the stock levels view has been restored. A failure of the
+     * pipeline itself, such as a dead letter that cannot be sent, restarts it from the committed offsets.
+     */
+    @Override
+    public void start() {
+        subscription = Flux.defer(() -> dispatch(KafkaReceiver.create(receiverOptions).receive()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.error("Reactive dispatch failed, restarting", signal.failure())))
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = subscription;
+        if (running != null) {
+            running.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.close();
+    }
+
+    /**
+     * Emits every record once it is acknowledged
+     */
+    Flux<ReceiverRecord<String, Object>> dispatch(Flux<ReceiverRecord<String, Object>> records) {
+        return records
+                .groupBy(record -> record.receiverOffset().topicPartition())
+                .flatMap(this::dispatchPartition, Integer.MAX_VALUE);
+    }
+
+    private Flux<ReceiverRecord<String, Object>> dispatchPartition(GroupedFlux<?, ReceiverRecord<String, Object>> partition) {
+        Map<String, Mono<Void>> lastOfKey = new ConcurrentHashMap<>();
+        return partition
+                .flatMapSequential(record -> inKeyOrder(lastOfKey, record), concurrencyPerPartition)
+                .doOnNext(record -> record.receiverOffset().acknowledge());
+    }
+
+    /**
+     * Chains the dispatch of a record after that of the previous record of its key still in flight, if any
+     */
+    private Mono<ReceiverRecord<String, Object>> inKeyOrder(Map<String, Mono<Void>> lastOfKey,
+                                                            ReceiverRecord<String, Object> record) {
+        String key = record.key();
+        if (key == null) {
+            return dispatch(record).thenReturn(record);
+        }
+        Mono<Void> dispatched = lastOfKey.getOrDefault(key, Mono.empty())
+                .then(Mono.defer(() -> dispatch(record)))
+                .cache();
+        lastOfKey.put(key, dispatched);
+        return dispatched
+                .doFinally(signal -> lastOfKey.remove(key, dispatched))
+                .thenReturn(record);
+    }
+
+    private Mono<Void> dispatch(ReceiverRecord<String, Object> record) {
+        int partition = record.partition();
+        if (!(record.value() instanceof OrderCreated orderCreated)) {
+            return deadLetterUndeserializable(record)
+                    .doOnSuccess(sent -> hotPathLog.outcome(partition, Outcome.FAILED));
+        }
+        long start = System.nanoTime();
+        return checkAvailable(orderCreated)
+                .retryWhen(Retry.fixedDelay(retryAttempts - 1, retryBackoff)
+                        .filter(RetryableException.class::isInstance)
+                        .doBeforeRetry(signal -> hotPathLog.log(log, "Retryable Exception - partition: {} - key: {} - payload: {}",
+                                partition, record.key(), orderCreated))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .flatMap(available -> available
+                        ? sendDispatchEvents(record.key(), orderCreated).thenReturn(Outcome.DISPATCHED)
+                        : Mono.just(Outcome.UNAVAILABLE))
+                .onErrorResume(e -> deadLetter(record, record.value(), e).thenReturn(Outcome.FAILED))
+                .doOnNext(outcome -> {
+                    dispatchMetrics.processed(start, outcome == Outcome.DISPATCHED || outcome == Outcome.UNAVAILABLE);
+                    hotPathLog.outcome(partition, outcome);
+                    if (outcome == Outcome.UNAVAILABLE) {
+                        hotPathLog.log(log, "Item {} is unavailable. ", orderCreated.getItem());
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Boolean> checkAvailable(OrderCreated orderCreated) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return stockLookup.apply(orderCreated.getItem())
+                    .doOnNext(available -> dispatchMetrics.stockChecked(start, available))
+                    .doOnError(e -> dispatchMetrics.stockCheckFailed(start));
+        });
+    }
+
+    /**
+     * The events are handed to the producer in order, its idempotence keeps them in order
+     */
+    private Mono<Void> sendDispatchEvents(String key, OrderCreated orderCreated) {
+        return send(Flux.fromIterable(dispatchEvents.of(orderCreated))
+                .map(event -> new TimedProducerRecord<>(DispatchEvents.topicOf(event), key, event)));
+    }
+
+    /**
+     * As the DeadLetterPublishingRecoverer does, the value is the raw data the ErrorHandlingDeserializer failed on
+     */
+    private Mono<Void> deadLetterUndeserializable(ReceiverRecord<String, Object> record) {
+        DeserializationException cause = SerializationUtils.getExceptionFromHeader(record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (cause == null) {
+            cause = new DeserializationException("Not an OrderCreated: " + record.value(), null, false, null);
+        }
+        return deadLetter(record, cause.getData(), cause);
+    }
+
+    private Mono<Void> deadLetter(ReceiverRecord<String, Object> record, Object value, Throwable cause) {
+        log.error("Dead-lettering record - topic: {} - partition: {} - offset: {} - key: {} - value: {}",
+                record.topic(), record.partition(), record.offset(), record.key(), record.value(), cause);
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(record.partition()).array());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(record.offset()).array());
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        return send(Flux.just(new ProducerRecord<>(ORDER_CREATED_DLT_TOPIC, null, record.key(), value, headers)));
+    }
+
+    private Mono<Void> send(Flux<ProducerRecord<String, Object>> records) {
+        return sender.send(records.map(record -> SenderRecord.create(record, record)))
+                .doOnNext(this::sent)
+                .then();
+    }
+
+    /**
+     * The dispatch events are TimedProducerRecords, made as the sender requests them, which the producer listener
+     * times the acknowledgement of
+     */
+    private void sent(SenderResult<ProducerRecord<String, Object>> result) {
+        if (result.exception() == null) {
+            producerListener.onSuccess(result.correlationMetadata(), result.recordMetadata());
+        } else {
+            producerListener.onError(result.correlationMetadata(), result.recordMetadata(), result.exception());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.lydtech.dispatch.reactive;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking stock service client of the reactive engine, on a WebClient over a pooled Reactor Netty client:
+ * a lookup holds no thread while it waits for its answer.
+ *
+ * Connection and response timeouts, I/O errors and 5xx answers fail the lookup with a RetryableException.
+ * Lookups beyond the connection pool wait for a connection rather than fail, the engine bounds how many there are.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "reactive")
+public class ReactiveStockClient {
+
+    private final ConnectionProvider connectionProvider;
+
+    private final WebClient webClient;
+
+    private final String stockServiceEndPoint;
+
+    public ReactiveStockClient(@Value("${dispatch.stockServiceEndpoint}") String stockServiceEndpoint,
+                               @Value("${dispatch.stock.http.max-connections:200}") int maxConnections,
+                               @Value("${dispatch.stock.http.connect-timeout:1s}") Duration connectTimeout,
+                               @Value("${dispatch.stock.http.response-timeout:2s}") Duration responseTimeout,
+                               @Value("${dispatch.stock.http.keep-alive:30s}") Duration keepAlive) {
+        this.stockServiceEndPoint = stockServiceEndpoint;
+        this.connectionProvider = ConnectionProvider.builder("stock-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .maxIdleTime(keepAlive)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Emits true if the item is available, false otherwise
+     */
+    public Mono<Boolean> checkAvailable(String item) {
+        return webClient.get()
+                .uri(stockServiceEndPoint + "?item={item}", item)
+                .exchangeToMono(response -> {
+                    int httpResponseCode = response.statusCode().value();
+                    if (httpResponseCode == 200) {
+                        return response.bodyToMono(String.class).map(Boolean::parseBoolean).defaultIfEmpty(false);
+                    }
+                    if (httpResponseCode >= 500) {
+                        return response.releaseBody()
+                                .then(Mono.error(new RetryableException(String.format("error %s", httpResponseCode))));
+                    }
+                    log.error("Stock service answered {} for item {}", httpResponseCode, item);
+                    return response.releaseBody()
+                            .then(Mono.error(new RuntimeException(String.format("error %s", httpResponseCode))));
+                })
+                .onErrorMap(WebClientRequestException.class, RetryableException::new);
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
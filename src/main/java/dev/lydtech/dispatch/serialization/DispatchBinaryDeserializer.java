@@ -0,0 +1,55 @@
+package dev.lydtech.dispatch.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * Reads values in the compact DispatchBinaryFormat, and hands any other value to a JSON deserializer configured with
+ * the same properties, so that JSON and binary producers can be mixed while they are migrated.
+ * The JSON deserializer is a JsonDeserializer unless JSON_DELEGATE_CLASS names another one.
+ *
+ * Meant to be the delegate of an ErrorHandlingDeserializer: malformed values throw a SerializationException.
+ */
+public class DispatchBinaryDeserializer implements Deserializer<Object> {
+
+    public static final String JSON_DELEGATE_CLASS = "dispatch.binary.json.delegate.class";
+
+    private Deserializer<?> jsonDeserializer = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object delegateClass = configs.get(JSON_DELEGATE_CLASS);
+        if (delegateClass != null) {
+            try {
+                jsonDeserializer = delegateClass instanceof Class<?> type
+                        ? (Deserializer<?>) type.getDeclaredConstructor().newInstance()
+                        : (Deserializer<?>) ClassUtils.forName(delegateClass.toString(), null).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create JSON delegate " + delegateClass, e);
+            }
+        }
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (DispatchBinaryFormat.isBinary(data)) {
+            return DispatchBinaryFormat.decode(data);
+        }
+        return headers == null ? jsonDeserializer.deserialize(topic, data) : jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,179 @@
+package dev.lydtech.dispatch.serialization;
+
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the dispatch messages, no schema registry needed.
+ *
+ * Every value starts with a three byte header: the magic byte, the format version and the message type. UUIDs are
+ * written as a presence byte followed by their 16 raw bytes, strings as a varint of their UTF-8 length plus one
+ * (0 for null) followed by the bytes. JSON values start with '{', so the magic byte tells both formats apart.
+ */
+public final class DispatchBinaryFormat {
+
+    public static final byte MAGIC = (byte) 0xD5;
+
+    public static final byte VERSION = 1;
+
+    static final byte ORDER_CREATED = 1;
+    static final byte DISPATCH_PREPARING = 2;
+    static final byte ORDER_DISPATCHED = 3;
+    static final byte DISPATCH_COMPLETED = 4;
+    static final byte DISPATCH_TRACKED = 5;
+
+    private static final int HEADER_SIZE = 3;
+
+    private DispatchBinaryFormat() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(Object message) {
+        if (message instanceof OrderCreated orderCreated) {
+            byte[] item = utf8(orderCreated.getItem());
+            ByteBuffer buffer = header(ORDER_CREATED, uuidSize(orderCreated.getOrderId()) + stringSize(item));
+            putUuid(buffer, orderCreated.getOrderId());
+            putString(buffer, item);
+            return buffer.array();
+        }
+        if (message instanceof DispatchPreparing dispatchPreparing) {
+            ByteBuffer buffer = header(DISPATCH_PREPARING, uuidSize(dispatchPreparing.getOrderId()));
+            putUuid(buffer, dispatchPreparing.getOrderId());
+            return buffer.array();
+        }
+        if (message instanceof OrderDispached orderDispached) {
+            byte[] notes = utf8(orderDispached.getNotes());
+            ByteBuffer buffer = header(ORDER_DISPATCHED, uuidSize(orderDispached.getOrderId())
+                    + uuidSize(orderDispached.getProcessedById()) + stringSize(notes));
+            putUuid(buffer, orderDispached.getOrderId());
+            putUuid(buffer, orderDispached.getProcessedById());
+            putString(buffer, notes);
+            return buffer.array();
+        }
+        if (message instanceof DispatchCompleted dispatchCompleted) {
+            byte[] dispatchedDate = utf8(dispatchCompleted.getDispatchedDate());
+            ByteBuffer buffer = header(DISPATCH_COMPLETED, uuidSize(dispatchCompleted.getOrderId()) + stringSize(dispatchedDate));
+            putUuid(buffer, dispatchCompleted.getOrderId());
+            putString(buffer, dispatchedDate);
+            return buffer.array();
+        }
+        if (message instanceof DispatchTracked dispatchTracked) {
+            byte[] dispatchedDate = utf8(dispatchTracked.getDispatchedDate());
+            ByteBuffer buffer = header(DISPATCH_TRACKED, 1 + uuidSize(dispatchTracked.getOrderId()) + stringSize(dispatchedDate));
+            buffer.put((byte) dispatchTracked.getVersion());
+            putUuid(buffer, dispatchTracked.getOrderId());
+            putString(buffer, dispatchedDate);
+            return buffer.array();
+        }
+        throw new SerializationException("No binary format for " + message.getClass().getName());
+    }
+
+    public static Object decode(byte[] data) {
+        if (!isBinary(data) || data.length < HEADER_SIZE) {
+            throw new SerializationException("Not a binary dispatch message");
+        }
+        if (data[1] != VERSION) {
+            throw new SerializationException("Unsupported binary format version " + data[1]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        try {
+            return switch (data[2]) {
+                case ORDER_CREATED -> new OrderCreated(getUuid(buffer), getString(buffer));
+                case DISPATCH_PREPARING -> new DispatchPreparing(getUuid(buffer));
+                case ORDER_DISPATCHED -> new OrderDispached(getUuid(buffer), getUuid(buffer), getString(buffer));
+                case DISPATCH_COMPLETED -> new DispatchCompleted(getUuid(buffer), getString(buffer));
+                case DISPATCH_TRACKED -> new DispatchTracked(buffer.get(), getUuid(buffer), getString(buffer));
+                default -> throw new SerializationException("Unknown binary message type " + data[2]);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated binary dispatch message", e);
+        }
+    }
+
+    private static ByteBuffer header(byte type, int bodySize) {
+        return ByteBuffer.allocate(HEADER_SIZE + bodySize).put(MAGIC).put(VERSION).put(type);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int uuidSize(UUID uuid) {
+        return uuid == null ? 1 : 17;
+    }
+
+    private static int stringSize(byte[] utf8) {
+        return utf8 == null ? 1 : varintSize(utf8.length + 1) + utf8.length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        if (uuid == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        int value = utf8.length + 1;
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        buffer.put(utf8);
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new SerializationException("Malformed string length");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value == 0) {
+            return null;
+        }
+        int length = value - 1;
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
@@ -0,0 +1,22 @@
+package dev.lydtech.dispatch.serialization;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes the dispatch messages in the compact DispatchBinaryFormat.
+ *
+ * Raw byte[] values, such as records dead-lettered after failing deserialization, are written as they are.
+ */
+public class DispatchBinarySerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[] bytes) {
+            return bytes;
+        }
+        return DispatchBinaryFormat.encode(data);
+    }
+}
@@ -0,0 +1,371 @@
+package dev.lydtech.dispatch.serialization;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads OrderCreated JSON values by walking the bytes once: no type header lookups, no parser or tree objects,
+ * and the orderId is parsed straight from the bytes instead of going through a String. The only allocations
+ * are the OrderCreated, its UUID and the item String.
+ *
+ * Unknown fields are skipped and scalar items are read as text, as the JsonDeserializer does. Malformed values
+ * throw a SerializationException, so that an ErrorHandlingDeserializer turns them into poison pills.
+ *
+ * Values whose type header names another class are handed to a JsonDeserializer configured with the same
+ * properties, so that the deserializer can back a consumer factory shared with listeners of other topics.
+ */
+public class OrderCreatedDeserializer implements Deserializer<Object> {
+
+    private static final byte[] ORDER_CREATED_TYPE = OrderCreated.class.getName().getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ORDER_ID = "orderId".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ITEM = "item".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int UUID_LENGTH = 36;
+
+    private static final int MAX_DEPTH = 1000;
+
+    private final JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        Header type = headers == null ? null : headers.lastHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        if (type != null && !Arrays.equals(type.value(), ORDER_CREATED_TYPE)) {
+            return jsonDeserializer.deserialize(topic, headers, data);
+        }
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public OrderCreated deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return new Reader(data).readOrderCreated();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Unexpected end of OrderCreated JSON");
+        }
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        OrderCreated readOrderCreated() {
+            expect('{');
+            UUID orderId = null;
+            String item = null;
+            if (peek() == '}') {
+                position++;
+                return new OrderCreated(null, null);
+            }
+            do {
+                expect('"');
+                int nameStart = position;
+                skipStringBody();
+                int nameEnd = position - 1;
+                expect(':');
+                if (nameIs(nameStart, nameEnd, ORDER_ID)) {
+                    orderId = readUuid();
+                } else if (nameIs(nameStart, nameEnd, ITEM)) {
+                    item = readScalarText();
+                } else {
+                    skipValue(0);
+                }
+            } while (nextIs(','));
+            expect('}');
+            return new OrderCreated(orderId, item);
+        }
+
+        private UUID readUuid() {
+            byte next = peek();
+            if (next == 'n') {
+                expectLiteral("null");
+                return null;
+            }
+            if (next != '"') {
+                throw error("orderId is not a UUID");
+            }
+            position++;
+            int start = position;
+            if (start + UUID_LENGTH >= data.length || data[start + UUID_LENGTH] != '"'
+                    || data[start + 8] != '-' || data[start + 13] != '-' || data[start + 18] != '-' || data[start + 23] != '-') {
+                throw error("orderId is not a UUID");
+            }
+            long mostSignificantBits = hex(start, 8) << 32 | hex(start + 9, 4) << 16 | hex(start + 14, 4);
+            long leastSignificantBits = hex(start + 19, 4) << 48 | hex(start + 24, 12);
+            position = start + UUID_LENGTH + 1;
+            return new UUID(mostSignificantBits, leastSignificantBits);
+        }
+
+        private long hex(int start, int length) {
+            long value = 0;
+            for (int i = start; i < start + length; i++) {
+                int digit = Character.digit(data[i], 16);
+                if (digit < 0) {
+                    throw error("orderId is not a UUID");
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+
+        private String readScalarText() {
+            byte next = peek();
+            switch (next) {
+                case '"' -> {
+                    position++;
+                    return readStringBody();
+                }
+                case 'n' -> {
+                    expectLiteral("null");
+                    return null;
+                }
+                case 't' -> {
+                    expectLiteral("true");
+                    return "true";
+                }
+                case 'f' -> {
+                    expectLiteral("false");
+                    return "false";
+                }
+                default -> {
+                    int start = position;
+                    skipNumber();
+                    return new String(data, start, position - start, StandardCharsets.US_ASCII);
+                }
+            }
+        }
+
+        private void skipValue(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw error("nested too deeply");
+            }
+            byte next = peek();
+            switch (next) {
+                case '"' -> {
+                    position++;
+                    skipStringBody();
+                }
+                case '{' -> {
+                    position++;
+                    if (!nextIs('}')) {
+                        do {
+                            expect('"');
+                            skipStringBody();
+                            expect(':');
+                            skipValue(depth + 1);
+                        } while (nextIs(','));
+                        expect('}');
+                    }
+                }
+                case '[' -> {
+                    position++;
+                    if (!nextIs(']')) {
+                        do {
+                            skipValue(depth + 1);
+                        } while (nextIs(','));
+                        expect(']');
+                    }
+                }
+                case 't' -> expectLiteral("true");
+                case 'f' -> expectLiteral("false");
+                case 'n' -> expectLiteral("null");
+                default -> skipNumber();
+            }
+        }
+
+        private void skipNumber() {
+            if (data[position] == '-') {
+                position++;
+            }
+            int digits = skipDigits();
+            if (digits == 0 || (digits > 1 && data[position - digits] == '0')) {
+                throw error("malformed number");
+            }
+            if (position < data.length && data[position] == '.') {
+                position++;
+                if (skipDigits() == 0) {
+                    throw error("malformed number");
+                }
+            }
+            if (position < data.length && (data[position] == 'e' || data[position] == 'E')) {
+                position++;
+                if (position < data.length && (data[position] == '+' || data[position] == '-')) {
+                    position++;
+                }
+                if (skipDigits() == 0) {
+                    throw error("malformed number");
+                }
+            }
+        }
+
+        private int skipDigits() {
+            int start = position;
+            while (position < data.length && data[position] >= '0' && data[position] <= '9') {
+                position++;
+            }
+            return position - start;
+        }
+
+        /**
+         * Moves past the closing quote of a string whose opening quote has been read
+         */
+        private void skipStringBody() {
+            while (true) {
+                byte b = data[position++];
+                if (b == '"') {
+                    return;
+                }
+                if (b == '\\') {
+                    position++;
+                } else if (b >= 0 && b < 0x20) {
+                    throw error("unescaped control character");
+                }
+            }
+        }
+
+        private String readStringBody() {
+            int start = position;
+            boolean ascii = true;
+            while (true) {
+                byte b = data[position];
+                if (b == '"') {
+                    String value = new String(data, start, position - start,
+                            ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                    position++;
+                    return value;
+                }
+                if (b == '\\') {
+                    return readEscapedStringBody(start);
+                }
+                if (b >= 0 && b < 0x20) {
+                    throw error("unescaped control character");
+                }
+                ascii &= b >= 0;
+                position++;
+            }
+        }
+
+        private String readEscapedStringBody(int start) {
+            StringBuilder value = new StringBuilder(new String(data, start, position - start, StandardCharsets.UTF_8));
+            while (true) {
+                int segmentStart = position;
+                while (data[position] != '"' && data[position] != '\\') {
+                    if (data[position] >= 0 && data[position] < 0x20) {
+                        throw error("unescaped control character");
+                    }
+                    position++;
+                }
+                value.append(new String(data, segmentStart, position - segmentStart, StandardCharsets.UTF_8));
+                if (data[position++] == '"') {
+                    return value.toString();
+                }
+                byte escaped = data[position++];
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append((char) escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        value.append((char) hexChar(position));
+                        position += 4;
+                    }
+                    default -> throw error("invalid escape");
+                }
+            }
+        }
+
+        private int hexChar(int start) {
+            int value = 0;
+            for (int i = start; i < start + 4; i++) {
+                int digit = Character.digit(data[i], 16);
+                if (digit < 0) {
+                    throw error("invalid escape");
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+
+        private boolean nameIs(int start, int end, byte[] name) {
+            if (end - start != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (data[start + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void expectLiteral(String literal) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (data[position++] != literal.charAt(i)) {
+                    throw error("unexpected literal");
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private boolean nextIs(char expected) {
+            if (peek() == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips whitespace and returns the next byte without consuming it
+         */
+        private byte peek() {
+            byte b = data[position];
+            while (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                b = data[++position];
+            }
+            return b;
+        }
+
+        private SerializationException error(String reason) {
+            return new SerializationException("Malformed OrderCreated JSON at " + position + ": " + reason);
+        }
+    }
+}
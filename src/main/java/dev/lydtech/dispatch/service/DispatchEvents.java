@@ -0,0 +1,106 @@
+package dev.lydtech.dispatch.service;
+
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * The events of a dispatched order, in the order they are sent, shared by all the engines.
+ *
+ * With dispatch.tracking.mode=separate (tracking version 1) an order sends a DispatchPreparing, its OrderDispached
+ * and a DispatchCompleted. With coalesced (version 2) it sends its OrderDispached then a single DispatchTracked,
+ * two records instead of three; the consumers of dispatch.tracking must read DispatchTracked before it is enabled.
+ * dispatch.tracking.compact-order-dispatched leaves out the notes of OrderDispached, derivable from the order.
+ */
+@Component
+public class DispatchEvents {
+
+    public static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+    public static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+
+    public static final int COALESCED_VERSION = 2;
+
+    static final UUID APPLICATION_ID = randomUUID();
+
+    private final boolean coalesced;
+
+    private final boolean compactOrderDispatched;
+
+    @Autowired
+    public DispatchEvents(@Value("${dispatch.tracking.mode:separate}") String mode,
+                          @Value("${dispatch.tracking.compact-order-dispatched:false}") boolean compactOrderDispatched) {
+        this(coalesced(mode), compactOrderDispatched);
+    }
+
+    public DispatchEvents(boolean coalesced, boolean compactOrderDispatched) {
+        this.coalesced = coalesced;
+        this.compactOrderDispatched = compactOrderDispatched;
+    }
+
+    /**
+     * The separate tracking events and the full OrderDispached, what the consumers written before version 2 read
+     */
+    public static DispatchEvents separate() {
+        return new DispatchEvents(false, false);
+    }
+
+    private static boolean coalesced(String mode) {
+        return switch (mode) {
+            case "separate" -> false;
+            case "coalesced" -> true;
+            default -> throw new IllegalArgumentException("Unknown dispatch.tracking.mode " + mode);
+        };
+    }
+
+    public List<Object> of(OrderCreated orderCreated) {
+        if (coalesced) {
+            return List.of(buildOrderDispatched(orderCreated), buildDispatchTracked(orderCreated));
+        }
+        return List.of(buildDispatchPreparing(orderCreated), buildOrderDispatched(orderCreated),
+                buildDispatchCompleted(orderCreated));
+    }
+
+    public static String topicOf(Object event) {
+        return event instanceof OrderDispached ? ORDER_DISPATCHED_TOPIC : DISPATCH_TRACKING_TOPIC;
+    }
+
+    private DispatchPreparing buildDispatchPreparing(OrderCreated orderCreated) {
+        return DispatchPreparing.builder()
+                .orderId(orderCreated.getOrderId())
+                .build();
+    }
+
+    private OrderDispached buildOrderDispatched(OrderCreated orderCreated) {
+        return OrderDispached.builder()
+                .orderId(orderCreated.getOrderId())
+                .processedById(APPLICATION_ID)
+                .notes(compactOrderDispatched ? null : "Dispatch: " + orderCreated.getItem())
+                .build();
+    }
+
+    private DispatchCompleted buildDispatchCompleted(OrderCreated orderCreated) {
+        return DispatchCompleted.builder()
+                .orderId(orderCreated.getOrderId())
+                .dispatchedDate(LocalDate.now().toString())
+                .build();
+    }
+
+    private DispatchTracked buildDispatchTracked(OrderCreated orderCreated) {
+        return DispatchTracked.builder()
+                .version(COALESCED_VERSION)
+                .orderId(orderCreated.getOrderId())
+                .dispatchedDate(LocalDate.now().toString())
+                .build();
+    }
+}
@@ -1,66 +1,363 @@
 package dev.lydtech.dispatch.service;
 
-import dev.lydtech.dispatch.client.StockServiceClient;
-import dev.lydtech.dispatch.message.DispatchCompleted;
-import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.client.StockAvailability;
+import dev.lydtech.dispatch.dedup.ProcessedOrderStore;
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.jfr.DispatchSendEvent;
+import dev.lydtech.dispatch.jfr.StockCheckEvent;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
 import dev.lydtech.dispatch.message.OrderCreated;
-import dev.lydtech.dispatch.message.OrderDispached;
-import lombok.RequiredArgsConstructor;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.metrics.TimedProducerRecord;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDate;
-import java.util.UUID;
-
-import static java.util.UUID.randomUUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Primary as the slow lane, when enabled, runs a second instance from withStockAvailability
+ */
 @Slf4j
+@Primary
 @Service
-@RequiredArgsConstructor
 public class DispatchService {
 
-    private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
-    private static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+    private static final int UNKNOWN_PARTITION = -1;
 
+    private static final CompletableFuture<Void> NOTHING_SENT = CompletableFuture.completedFuture(null);
 
-    private static final UUID APPLICATION_ID = randomUUID();
+    private static final CompletableFuture<String> ALREADY_DISPATCHED = CompletableFuture.completedFuture(null);
 
     private final KafkaTemplate<String, Object> kafkaProducer;
 
-    private final StockServiceClient stockServiceClient;
+    private final StockAvailability stockAvailability;
+
+    private final DispatchMetrics dispatchMetrics;
+
+    private final HotPathLog hotPathLog;
+
+    private final DispatchEvents dispatchEvents;
+
+    /**
+     * Orders already dispatched, skipped on redelivery; null when dispatch.dedup.enabled is false
+     */
+    private final ProcessedOrderStore processedOrders;
+
+    /**
+     * When true the events of an order are sent back-to-back and waited on once.
+     * Ordering on dispatch.tracking relies on the idempotent producer configured in producerFactory.
+     */
+    private final boolean pipelined;
+
+    /**
+     * Stock lookups processBatch starts ahead of the record being dispatched. They only overlap when the
+     * StockAvailability looks up without blocking, each of them holds a permit of the StockServiceGuard if any.
+     */
+    private final int stockLookahead;
+
+    public DispatchService(KafkaTemplate<String, Object> kafkaProducer, StockAvailability stockAvailability,
+                           DispatchMetrics dispatchMetrics, HotPathLog hotPathLog, DispatchEvents dispatchEvents,
+                           ProcessedOrderStore processedOrders, boolean pipelined, int stockLookahead) {
+        this.kafkaProducer = kafkaProducer;
+        this.stockAvailability = stockAvailability;
+        this.dispatchMetrics = dispatchMetrics;
+        this.hotPathLog = hotPathLog;
+        this.dispatchEvents = dispatchEvents;
+        this.processedOrders = processedOrders;
+        this.pipelined = pipelined;
+        this.stockLookahead = Math.max(1, stockLookahead);
+    }
+
+    /**
+     * This service looking up stock on another provider, the rest of its configuration shared
+     */
+    public DispatchService withStockAvailability(StockAvailability stockAvailability) {
+        return new DispatchService(kafkaProducer, stockAvailability, dispatchMetrics, hotPathLog, dispatchEvents,
+                processedOrders, pipelined, stockLookahead);
+    }
+
+    @Autowired
+    public DispatchService(KafkaTemplate<String, Object> kafkaProducer,
+                           StockAvailability stockAvailability,
+                           DispatchMetrics dispatchMetrics,
+                           HotPathLog hotPathLog,
+                           DispatchEvents dispatchEvents,
+                           ObjectProvider<ProcessedOrderStore> processedOrders,
+                           @Value("${dispatch.pipelined:false}") boolean pipelined,
+                           @Value("${dispatch.batch.stock-lookahead:16}") int stockLookahead) {
+        this(kafkaProducer, stockAvailability, dispatchMetrics, hotPathLog, dispatchEvents, processedOrders.getIfAvailable(),
+                pipelined, stockLookahead);
+    }
 
     public void process(String key, OrderCreated orderCreated) throws Exception {
+        process(UNKNOWN_PARTITION, key, orderCreated);
+    }
 
-        String available = stockServiceClient.checkAvailable(orderCreated.getItem());
+    /**
+     * The partition of the record is only used to tag the JFR events of the order
+     */
+    public void process(int partition, String key, OrderCreated orderCreated) throws Exception {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.FAILED;
+        try {
+            outcome = dispatch(partition, key, orderCreated);
+        } catch (RetryableException e) {
+            outcome = Outcome.RETRYABLE;
+            throw e;
+        } finally {
+            dispatchMetrics.processed(start, outcome != Outcome.RETRYABLE && outcome != Outcome.FAILED);
+            hotPathLog.outcome(partition, outcome);
+        }
+    }
+
+    private Outcome dispatch(int partition, String key, OrderCreated orderCreated) throws Exception {
+
+        if (alreadyDispatched(orderCreated)) {
+            return Outcome.DUPLICATE;
+        }
+
+        String available = checkAvailable(partition, orderCreated);
 
         if (Boolean.parseBoolean(available)) {
 
-            DispatchPreparing dispatchPreparing = DispatchPreparing.builder()
-                    .orderId(orderCreated.getOrderId())
-                    .build();
+            if (pipelined) {
+                sendDispatchEvents(partition, key, orderCreated).get();
+            } else {
+                for (Object event : dispatchEvents.of(orderCreated)) {
+                    send(partition, key, orderCreated, event).get();
+                }
+            }
+
+            markDispatched(orderCreated);
+            hotPathLog.log(log, "Sent message: key: {} - OrderId: {} -  processedById: {}", key, orderCreated.getOrderId(), DispatchEvents.APPLICATION_ID);
+            return Outcome.DISPATCHED;
+        }
+        hotPathLog.log(log, "Item {} is unavailable. ", orderCreated.getItem());
+        return Outcome.UNAVAILABLE;
+    }
+
+    /**
+     * Processes all the records of a poll, sending every event without blocking and then waiting
+     * on all the send futures once.
+     *
+     * Processing stops at the first record that fails the stock check (or could not be deserialized),
+     * and a BatchListenerFailedException is thrown for the first failed record so that the error handler
+     * commits the records before it and retries or dead-letters only that record.
+     *
+     * The stock lookups of up to stockLookahead records are started ahead of the record being dispatched, so that
+     * a non-blocking StockAvailability has them in flight together. No further lookup is started once one has
+     * failed, the records after it are not dispatched.
+     */
+    public void processBatch(List<ConsumerRecord<String, OrderCreated>> records) {
+        long start = System.nanoTime();
+        try {
+            dispatchBatch(records);
+        } finally {
+            dispatchMetrics.batchProcessed(start);
+        }
+    }
+
+    private void dispatchBatch(List<ConsumerRecord<String, OrderCreated>> records) {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(records.size());
+        List<CompletableFuture<String>> lookups = new ArrayList<>(records.size());
+        BatchListenerFailedException failure = null;
+
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, OrderCreated> record = records.get(index);
+            try {
+                lookAhead(records, lookups, index + stockLookahead);
+                sends.add(sendAll(record.partition(), record.key(), record.value(), lookups.get(index)));
+            } catch (Exception e) {
+                hotPathLog.outcome(record.partition(), failed(e));
+                failure = new BatchListenerFailedException(e.getMessage(), e, index);
+                break;
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // the failed record is located below
+        }
+
+        for (int index = 0; index < sends.size(); index++) {
+            CompletableFuture<Void> send = sends.get(index);
+            try {
+                send.join();
+            } catch (CompletionException e) {
+                hotPathLog.outcome(records.get(index).partition(), failed(e.getCause()));
+                throw new BatchListenerFailedException(e.getCause().getMessage(), e.getCause(), index);
+            }
+            if (send != NOTHING_SENT) {
+                markDispatched(records.get(index).value());
+                hotPathLog.outcome(records.get(index).partition(), Outcome.DISPATCHED);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        hotPathLog.log(log, "Processed batch of {} messages", records.size());
+    }
+
+    private static Outcome failed(Throwable cause) {
+        return cause instanceof RetryableException ? Outcome.RETRYABLE : Outcome.FAILED;
+    }
+
+    /**
+     * Starts the stock lookups of the records up to, excluding, until. Records that could not be deserialized get
+     * no lookup, and already dispatched ones ALREADY_DISPATCHED.
+     */
+    private void lookAhead(List<ConsumerRecord<String, OrderCreated>> records, List<CompletableFuture<String>> lookups,
+                           int until) {
+        int end = Math.min(until, records.size());
+        while (lookups.size() < end) {
+            if (!lookups.isEmpty() && lookups.get(lookups.size() - 1) != null
+                    && lookups.get(lookups.size() - 1).isCompletedExceptionally()) {
+                return;
+            }
+            ConsumerRecord<String, OrderCreated> record = records.get(lookups.size());
+            if (record.value() == null) {
+                lookups.add(null);
+            } else if (alreadyDispatched(record.value())) {
+                lookups.add(ALREADY_DISPATCHED);
+            } else {
+                lookups.add(checkAvailableAsync(record.partition(), record.value()));
+            }
+        }
+    }
 
-            kafkaProducer.send(DISPATCH_TRACKING_TOPIC, key, dispatchPreparing).get();
+    private CompletableFuture<Void> sendAll(int partition, String key, OrderCreated orderCreated,
+                                            CompletableFuture<String> lookup) {
+        if (orderCreated == null) {
+            throw new NotRetryableException("Message could not be deserialized");
+        }
 
-            OrderDispached orderDispached = OrderDispached.builder()
-                    .orderId(orderCreated.getOrderId())
-                    .processedById(APPLICATION_ID)
-                    .notes("Dispatch: " + orderCreated.getItem())
-                    .build();
+        if (lookup == ALREADY_DISPATCHED) {
+            hotPathLog.outcome(partition, Outcome.DUPLICATE);
+            return NOTHING_SENT;
+        }
 
-            kafkaProducer.send(ORDER_DISPATCHED_TOPIC, key, orderDispached).get();
+        String available = await(lookup);
 
-            DispatchCompleted dispatchCompleted = DispatchCompleted.builder()
-                    .orderId(orderCreated.getOrderId())
-                    .dispatchedDate(LocalDate.now().toString())
-                    .build();
+        if (!Boolean.parseBoolean(available)) {
+            hotPathLog.log(log, "Item {} is unavailable. ", orderCreated.getItem());
+            hotPathLog.outcome(partition, Outcome.UNAVAILABLE);
+            return NOTHING_SENT;
+        }
 
-            kafkaProducer.send(DISPATCH_TRACKING_TOPIC, key, dispatchCompleted).get();
+        return sendDispatchEvents(partition, key, orderCreated);
+    }
 
-            log.info("Sent message: key: {} - OrderId: {} -  processedById: {}", key, orderCreated.getOrderId(), APPLICATION_ID);
+    private boolean alreadyDispatched(OrderCreated orderCreated) {
+        if (processedOrders == null || orderCreated.getOrderId() == null || !processedOrders.contains(orderCreated.getOrderId())) {
+            return false;
+        }
+        dispatchMetrics.duplicateSkipped();
+        hotPathLog.log(log, "Order {} already dispatched, skipped", orderCreated.getOrderId());
+        return true;
+    }
+
+    /**
+     * Within a transaction the order only counts as dispatched once its events are committed
+     */
+    private void markDispatched(OrderCreated orderCreated) {
+        if (processedOrders == null || orderCreated.getOrderId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    processedOrders.add(orderCreated.getOrderId());
+                }
+            });
         } else {
-            log.info("Item {} is unavailable. ", orderCreated.getItem());
+            processedOrders.add(orderCreated.getOrderId());
+        }
+    }
+
+    private String checkAvailable(int partition, OrderCreated orderCreated) {
+        StockCheckEvent event = new StockCheckEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            String available = stockAvailability.checkAvailable(orderCreated.getItem());
+            boolean isAvailable = Boolean.parseBoolean(available);
+            dispatchMetrics.stockChecked(start, isAvailable);
+            event.end(partition, orderCreated, isAvailable ? "available" : "unavailable");
+            return available;
+        } catch (RuntimeException e) {
+            dispatchMetrics.stockCheckFailed(start);
+            event.end(partition, orderCreated, "error");
+            throw e;
         }
+    }
+
+    private CompletableFuture<String> checkAvailableAsync(int partition, OrderCreated orderCreated) {
+        StockCheckEvent event = new StockCheckEvent();
+        event.begin();
+        long start = System.nanoTime();
+        return stockAvailability.checkAvailableAsync(orderCreated.getItem()).whenComplete((available, e) -> {
+            if (e == null) {
+                boolean isAvailable = Boolean.parseBoolean(available);
+                dispatchMetrics.stockChecked(start, isAvailable);
+                event.end(partition, orderCreated, isAvailable ? "available" : "unavailable");
+            } else {
+                dispatchMetrics.stockCheckFailed(start);
+                event.end(partition, orderCreated, "error");
+            }
+        });
+    }
 
+    private static String await(CompletableFuture<String> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RetryableException(e.getCause());
+        }
+    }
+
+    private CompletableFuture<Void> sendDispatchEvents(int partition, String key, OrderCreated orderCreated) {
+        List<Object> events = dispatchEvents.of(orderCreated);
+        CompletableFuture<?>[] sends = new CompletableFuture[events.size()];
+        for (int i = 0; i < sends.length; i++) {
+            sends[i] = send(partition, key, orderCreated, events.get(i));
+        }
+        return CompletableFuture.allOf(sends);
+    }
+
+    /**
+     * The send is timed to its acknowledgement by the producer listener, from the TimedProducerRecord. The JFR event
+     * of a send ends with its acknowledgement too, no callback is added for it unless a recording enables it.
+     */
+    private CompletableFuture<SendResult<String, Object>> send(int partition, String key, OrderCreated orderCreated,
+                                                               Object message) {
+        String topic = DispatchEvents.topicOf(message);
+        DispatchSendEvent event = new DispatchSendEvent(topic, message);
+        event.begin();
+        CompletableFuture<SendResult<String, Object>> future = kafkaProducer.send(new TimedProducerRecord<>(topic, key, message));
+        if (event.isEnabled()) {
+            future.whenComplete((result, e) -> event.end(partition, orderCreated, e == null ? "success" : "failure"));
+        }
+        return future;
     }
 }
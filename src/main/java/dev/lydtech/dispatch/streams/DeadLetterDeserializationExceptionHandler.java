@@ -0,0 +1,65 @@
+package dev.lydtech.dispatch.streams;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.errors.DeserializationExceptionHandler;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Sends the records of order.created that cannot be deserialized to order.created.DLT with their raw key and value
+ * and the exception headers of the DeadLetterPublishingRecoverer, then skips them, as the other engines do.
+ *
+ * Kafka Streams makes a handler per task, so they all share the byte[] producer passed in the streams config under
+ * PRODUCER_CONFIG, which its owner closes. The dead letter is sent outside the task's transaction, and acknowledged
+ * before the record is skipped: a failed send fails the task, which processes the record again.
+ */
+@Slf4j
+public class DeadLetterDeserializationExceptionHandler implements DeserializationExceptionHandler {
+
+    public static final String PRODUCER_CONFIG = "dispatch.streams.dead-letter.producer";
+
+    private Producer<byte[], byte[]> producer;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void configure(Map<String, ?> configs) {
+        if (!(configs.get(PRODUCER_CONFIG) instanceof Producer<?, ?> configured)) {
+            throw new ConfigException(PRODUCER_CONFIG, configs.get(PRODUCER_CONFIG), "A Producer<byte[], byte[]> is required");
+        }
+        this.producer = (Producer<byte[], byte[]>) configured;
+    }
+
+    @Override
+    public DeserializationHandlerResponse handle(ProcessorContext context, ConsumerRecord<byte[], byte[]> record,
+                                                 Exception exception) {
+        log.error("Dead-lettering record that could not be deserialized - topic: {} - partition: {} - offset: {}",
+                record.topic(), record.partition(), record.offset(), exception);
+        RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(record.partition()).array());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(record.offset()).array());
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, exception.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(exception.getMessage()).getBytes(StandardCharsets.UTF_8));
+        try {
+            producer.send(new ProducerRecord<>(DispatchTopology.ORDER_CREATED_DLT_TOPIC, null, record.key(), record.value(),
+                    headers)).get();
+            return DeserializationHandlerResponse.CONTINUE;
+        } catch (Exception e) {
+            log.error("Dead letter of offset {} of {}-{} could not be sent", record.offset(), record.topic(),
+                    record.partition(), e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return DeserializationHandlerResponse.FAIL;
+        }
+    }
+}
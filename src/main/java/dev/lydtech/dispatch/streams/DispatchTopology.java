@@ -0,0 +1,57 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+/**
+ * The dispatch flow as a Kafka Streams topology: order.created in, through the stock check, and the dispatch events
+ * out to dispatch.tracking and order.dispatched. Orders that fail their stock check for good go to order.created.DLT.
+ *
+ * The stock check emits every message with the key of its order, each message type is routed to its topic.
+ */
+public final class DispatchTopology {
+
+    public static final String ORDER_CREATED_TOPIC = "order.created";
+
+    public static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+
+    public static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+
+    public static final String ORDER_CREATED_DLT_TOPIC = "order.created.DLT";
+
+    public static final String PENDING_ORDERS_STORE = "pending-orders";
+
+    private DispatchTopology() {
+    }
+
+    public static KStream<String, OrderCreated> build(StreamsBuilder builder,
+                                                      ProcessorSupplier<String, OrderCreated, String, Object> stockCheck) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(PENDING_ORDERS_STORE),
+                Serdes.Long(), new JsonSerde<>(PendingOrder.class).noTypeInfo().ignoreTypeHeaders()));
+
+        KStream<String, OrderCreated> orders = builder.stream(ORDER_CREATED_TOPIC,
+                Consumed.with(Serdes.String(), new JsonSerde<>(OrderCreated.class).ignoreTypeHeaders()));
+        orders.process(stockCheck, Named.as("stock-check"), PENDING_ORDERS_STORE)
+                .to((key, message, recordContext) -> topicOf(message), Produced.with(Serdes.String(), new JsonSerde<>()));
+        return orders;
+    }
+
+    static String topicOf(Object message) {
+        if (message instanceof OrderDispached) {
+            return ORDER_DISPATCHED_TOPIC;
+        }
+        if (message instanceof OrderCreated) {
+            return ORDER_CREATED_DLT_TOPIC;
+        }
+        return DISPATCH_TRACKING_TOPIC;
+    }
+}
@@ -0,0 +1,24 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An OrderCreated waiting in the pending-orders store for its stock check
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingOrder {
+
+    String key;
+    OrderCreated order;
+    long timestamp;
+    int attempts;
+    /**
+     * Wall clock time before which a failed stock check is not retried
+     */
+    long notBefore;
+}
@@ -0,0 +1,195 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Checks the stock of the orders of a task asynchronously, and emits their dispatch events in offset order.
+ *
+ * Incoming orders are appended to the pending-orders store. Every window, or as soon as maxPending orders are
+ * waiting, the lookups of all the pending orders are started at once (one per distinct item) and the orders are
+ * then completed in order. As the store is changelogged, a pending order is committed in the same transaction as
+ * the input offset under exactly-once, and is restored rather than lost when the task moves.
+ *
+ * An order whose lookup fails with a RetryableException stays at the head of the store, holding back the orders
+ * behind it, and is retried after backoff until maxAttempts; orders failing otherwise, or out of attempts, are
+ * emitted as is to order.created.DLT.
+ */
+@Slf4j
+public class StockCheckProcessor implements Processor<String, OrderCreated, String, Object> {
+
+    private final Function<String, CompletableFuture<Boolean>> stockLookup;
+
+    private final DispatchEvents dispatchEvents;
+
+    private final int maxPending;
+
+    private final Duration window;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    private final DispatchMetrics dispatchMetrics;
+
+    private final HotPathLog hotPathLog;
+
+    private ProcessorContext<String, Object> context;
+
+    private KeyValueStore<Long, PendingOrder> pendingOrders;
+
+    private long nextSequence;
+
+    private int pending;
+
+    public StockCheckProcessor(Function<String, CompletableFuture<Boolean>> stockLookup,
+                               DispatchEvents dispatchEvents, int maxPending,
+                               Duration window, int maxAttempts, Duration backoff,
+                               DispatchMetrics dispatchMetrics, HotPathLog hotPathLog) {
+        this.stockLookup = stockLookup;
+        this.dispatchEvents = dispatchEvents;
+        this.maxPending = maxPending;
+        this.window = window;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.dispatchMetrics = dispatchMetrics;
+        this.hotPathLog = hotPathLog;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, Object> context) {
+        this.context = context;
+        this.pendingOrders = context.getStateStore(DispatchTopology.PENDING_ORDERS_STORE);
+        try (KeyValueIterator<Long, PendingOrder> last = pendingOrders.reverseAll()) {
+            nextSequence = last.hasNext() ? last.next().key + 1 : 0;
+        }
+        pending = (int) pendingOrders.approximateNumEntries();
+        context.schedule(window, PunctuationType.WALL_CLOCK_TIME, this::drain);
+    }
+
+    @Override
+    public void process(Record<String, OrderCreated> record) {
+        if (record.value() == null) {
+            log.warn("Skipping null OrderCreated - key: {}", record.key());
+            return;
+        }
+        pendingOrders.put(nextSequence++, new PendingOrder(record.key(), record.value(), record.timestamp(), 0, 0L));
+        if (++pending >= maxPending) {
+            drain(context.currentSystemTimeMs());
+        }
+    }
+
+    private void drain(long now) {
+        if (pending == 0) {
+            return;
+        }
+        List<KeyValue<Long, PendingOrder>> orders = new ArrayList<>(pending);
+        try (KeyValueIterator<Long, PendingOrder> iterator = pendingOrders.all()) {
+            iterator.forEachRemaining(orders::add);
+        }
+        if (orders.get(0).value.getNotBefore() > now) {
+            return;
+        }
+
+        Map<String, CompletableFuture<Boolean>> lookups = new HashMap<>();
+        for (KeyValue<Long, PendingOrder> order : orders) {
+            lookups.computeIfAbsent(order.value.getOrder().getItem(), this::lookup);
+        }
+        for (KeyValue<Long, PendingOrder> order : orders) {
+            if (!complete(order.key, order.value, lookups.get(order.value.getOrder().getItem()), now)) {
+                break;
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> lookup(String item) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> available;
+        try {
+            available = stockLookup.apply(item);
+        } catch (RuntimeException e) {
+            available = CompletableFuture.failedFuture(e);
+        }
+        return available.whenComplete((result, e) -> {
+            if (e == null) {
+                dispatchMetrics.stockChecked(start, result);
+            } else {
+                dispatchMetrics.stockCheckFailed(start);
+            }
+        });
+    }
+
+    /**
+     * Returns false when the order is left pending for a retry
+     */
+    private boolean complete(long sequence, PendingOrder order, CompletableFuture<Boolean> lookup, long now) {
+        OrderCreated orderCreated = order.getOrder();
+        int partition = context.taskId().partition();
+        try {
+            if (lookup.join()) {
+                for (Object event : dispatchEvents.of(orderCreated)) {
+                    forward(order, event);
+                }
+                hotPathLog.log(log, "Sent message: key: {} - OrderId: {} - partition: {}",
+                        order.getKey(), orderCreated.getOrderId(), partition);
+                hotPathLog.outcome(partition, Outcome.DISPATCHED);
+            } else {
+                hotPathLog.log(log, "Item {} is unavailable. ", orderCreated.getItem());
+                hotPathLog.outcome(partition, Outcome.UNAVAILABLE);
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RetryableException && order.getAttempts() + 1 < maxAttempts) {
+                log.warn("Retryable Exception - partition: {} - key: {} - payload: {}: {}",
+                        partition, order.getKey(), orderCreated, cause.getMessage());
+                pendingOrders.put(sequence, new PendingOrder(order.getKey(), orderCreated, order.getTimestamp(),
+                        order.getAttempts() + 1, now + backoff.toMillis()));
+                hotPathLog.outcome(partition, Outcome.RETRYABLE);
+                return false;
+            }
+            deadLetter(order, cause);
+            hotPathLog.outcome(partition, Outcome.FAILED);
+        }
+        pendingOrders.delete(sequence);
+        pending--;
+        return true;
+    }
+
+    private void forward(PendingOrder order, Object message) {
+        context.forward(new Record<>(order.getKey(), message, order.getTimestamp()));
+    }
+
+    private void deadLetter(PendingOrder order, Throwable cause) {
+        log.error("Dead-lettering order - key: {} - value: {} - after {} attempts",
+                order.getKey(), order.getOrder(), order.getAttempts() + 1, cause);
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, DispatchTopology.ORDER_CREATED_TOPIC.getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        context.forward(new Record<>(order.getKey(), order.getOrder(), order.getTimestamp(), headers));
+    }
+}
@@ -0,0 +1,107 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.StreamsUncaughtExceptionHandler.StreamThreadExceptionResponse;
+import org.apache.kafka.streams.kstream.KStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.streams.KafkaStreamsMicrometerListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka Streams engine, used when dispatch.engine=streams (or with the streams profile), in place of the listener
+ * containers: see DispatchTopology.
+ *
+ * Exactly-once v2 by default, so that the dispatch events, the pending-orders changelog and the order.created
+ * offsets are committed in one transaction per task. It needs a broker with a replicated transaction state log,
+ * dispatch.streams.processing-guarantee=at_least_once runs against a single development broker.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "streams")
+public class StreamsDispatchConfiguration {
+
+    /**
+     * Started with the listener containers, after the stock levels view has been restored
+     */
+    @Bean
+    public StreamsBuilderFactoryBean dispatchStreamsBuilder(
+            @Value("${kafka.bootstrap-servers}") String bootstrapServers,
+            @Value("${dispatch.streams.application-id:dispatch-streams}") String applicationId,
+            @Value("${dispatch.streams.processing-guarantee:exactly_once_v2}") String processingGuarantee,
+            @Value("${dispatch.streams.threads:1}") int threads,
+            @Value("${dispatch.streams.standby-replicas:0}") int standbyReplicas,
+            Producer<byte[], byte[]> streamsDeadLetterProducer,
+            MeterRegistry meterRegistry) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, processingGuarantee);
+        config.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, threads);
+        config.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, standbyReplicas);
+        config.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        // values that cannot be deserialized are dead-lettered and skipped, the Streams metrics count them
+        config.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterDeserializationExceptionHandler.class);
+        config.put(DeadLetterDeserializationExceptionHandler.PRODUCER_CONFIG, streamsDeadLetterProducer);
+
+        StreamsBuilderFactoryBean factory = new StreamsBuilderFactoryBean(new KafkaStreamsConfiguration(config));
+        factory.setPhase(AbstractMessageListenerContainer.DEFAULT_PHASE);
+        // the failed task's transaction is aborted and its records are processed again by the new thread
+        factory.setStreamsUncaughtExceptionHandler(e -> {
+            log.error("Stream thread failed, replacing it", e);
+            return StreamThreadExceptionResponse.REPLACE_THREAD;
+        });
+        factory.addListener(new KafkaStreamsMicrometerListener(meterRegistry));
+        return factory;
+    }
+
+    /**
+     * Producer of the records of order.created that cannot be deserialized, as they were read, to order.created.DLT
+     */
+    @Bean
+    public Producer<byte[], byte[]> streamsDeadLetterProducer(@Value("${kafka.bootstrap-servers}") String bootstrapServers) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaProducer<>(config);
+    }
+
+    @Bean
+    public KStream<String, OrderCreated> dispatchTopology(
+            StreamsBuilder dispatchStreamsBuilder,
+            StreamsStockLookup stockLookup,
+            DispatchEvents dispatchEvents,
+            DispatchMetrics dispatchMetrics,
+            HotPathLog hotPathLog,
+            @Value("${dispatch.streams.max-pending:500}") int maxPending,
+            @Value("${dispatch.streams.window:5ms}") Duration window,
+            @Value("${dispatch.streams.retry.attempts:4}") int maxAttempts,
+            @Value("${dispatch.streams.retry.backoff:100ms}") Duration backoff) {
+        return DispatchTopology.build(dispatchStreamsBuilder, () -> new StockCheckProcessor(stockLookup::checkAvailable, dispatchEvents,
+                maxPending, window, maxAttempts, backoff, dispatchMetrics, hotPathLog));
+    }
+}
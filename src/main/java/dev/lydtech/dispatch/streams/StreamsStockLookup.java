@@ -0,0 +1,55 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.client.StockAvailability;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock lookups of the Kafka Streams engine through the StockAvailability provider: with its non-blocking
+ * lookups when dispatch.stock.async.enabled, otherwise on a pool of lookup threads, so that the stream threads
+ * never wait on more than one lookup at a time.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.engine", havingValue = "streams")
+public class StreamsStockLookup {
+
+    private final StockAvailability stockAvailability;
+
+    private final boolean async;
+
+    private final ExecutorService executor;
+
+    public StreamsStockLookup(StockAvailability stockAvailability,
+                              @Value("${dispatch.stock.async.enabled:false}") boolean async,
+                              @Value("${dispatch.streams.lookup-threads:16}") int threads) {
+        this.stockAvailability = stockAvailability;
+        this.async = async;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = async ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stock-lookup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Boolean> checkAvailable(String item) {
+        if (async) {
+            return stockAvailability.checkAvailableAsync(item).thenApply(Boolean::parseBoolean);
+        }
+        return CompletableFuture.supplyAsync(() -> Boolean.parseBoolean(stockAvailability.checkAvailable(item)), executor);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package dev.lydtech.dispatch.backpressure;
+
+import dev.lydtech.dispatch.backpressure.BackpressureController.Pressure;
+import dev.lydtech.dispatch.backpressure.BackpressureController.StockLatency;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackpressureControllerTest {
+
+    private static final Pressure IDLE = new Pressure(0, 0, 0);
+
+    private final AtomicReference<Pressure> pressure = new AtomicReference<>(IDLE);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MessageListenerContainer container;
+
+    private BackpressureController controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        container = mock(MessageListenerContainer.class);
+        controller = new BackpressureController(() -> List.of(container), pressure::get,
+                100, Duration.ofMillis(500), 0.8, 0.5, meterRegistry);
+    }
+
+    @Test
+    void sample_PausesWhenInFlightIsOverItsThreshold() {
+        pressure.set(new Pressure(101, 0, 0));
+
+        controller.sample();
+
+        verify(container).pause();
+        assertThat(controller.isPaused()).isTrue();
+        assertThat(pauses(BackpressureController.IN_FLIGHT)).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.backpressure.paused").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void sample_PausesOnStockLatencyAndProducerBuffer() {
+        pressure.set(new Pressure(0, TimeUnit.MILLISECONDS.toNanos(600), 0));
+        controller.sample();
+        pressure.set(IDLE);
+        controller.sample();
+        pressure.set(new Pressure(0, 0, 0.9));
+        controller.sample();
+
+        assertThat(pauses(BackpressureController.STOCK_LATENCY)).isEqualTo(1);
+        assertThat(pauses(BackpressureController.PRODUCER_BUFFER)).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.backpressure.resumes").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sample_StaysPausedUntilEverySignalIsBelowTheResumeRatio() {
+        pressure.set(new Pressure(150, 0, 0));
+        controller.sample();
+
+        when(container.isPauseRequested()).thenReturn(true);
+        pressure.set(new Pressure(60, 0, 0.1));
+        controller.sample();
+        verify(container, never()).resume();
+
+        pressure.set(new Pressure(40, TimeUnit.MILLISECONDS.toNanos(300), 0.1));
+        controller.sample();
+        verify(container, never()).resume();
+
+        pressure.set(new Pressure(40, TimeUnit.MILLISECONDS.toNanos(100), 0.1));
+        controller.sample();
+        verify(container).resume();
+        verify(container, times(1)).pause();
+        assertThat(controller.isPaused()).isFalse();
+        assertThat(meterRegistry.get("dispatch.backpressure.paused").gauge().value()).isZero();
+    }
+
+    @Test
+    void sample_PausesContainersStartedWhilePaused() {
+        pressure.set(new Pressure(150, 0, 0));
+        controller.sample();
+
+        controller.sample();
+
+        verify(container, times(2)).pause();
+    }
+
+    @Test
+    void stockLatency_MeanOfTheChecksSinceTheLastSample() {
+        Timer available = Timer.builder("dispatch.stock.check").tag("result", "available").register(meterRegistry);
+        Timer failed = Timer.builder("dispatch.stock.check").tag("result", "error").register(meterRegistry);
+        StockLatency stockLatency = new StockLatency(meterRegistry);
+
+        available.record(Duration.ofMillis(100));
+        failed.record(Duration.ofMillis(300));
+        assertThat(stockLatency.sinceLastSample()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+
+        available.record(Duration.ofMillis(10));
+        assertThat(stockLatency.sinceLastSample()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(stockLatency.sinceLastSample()).isZero();
+    }
+
+    @Test
+    void bufferUsage_SharedOverTheProducers() {
+        assertThat(BackpressureController.bufferUsage(meterRegistry)).isZero();
+
+        gauge("kafka.producer.buffer.total.bytes", "producer-1", 1000);
+        gauge("kafka.producer.buffer.available.bytes", "producer-1", 100);
+        gauge("kafka.producer.buffer.total.bytes", "producer-2", 1000);
+        gauge("kafka.producer.buffer.available.bytes", "producer-2", 900);
+
+        assertThat(BackpressureController.bufferUsage(meterRegistry)).isEqualTo(0.5);
+    }
+
+    private void gauge(String name, String clientId, double value) {
+        Gauge.builder(name, () -> value).tag("client.id", clientId).register(meterRegistry);
+    }
+
+    private double pauses(String reason) {
+        return meterRegistry.get("dispatch.backpressure.pauses").tag("reason", reason).counter().count();
+    }
+}
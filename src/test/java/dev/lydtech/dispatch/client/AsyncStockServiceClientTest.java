@@ -0,0 +1,95 @@
+package dev.lydtech.dispatch.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import dev.lydtech.dispatch.exception.RetryableException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncStockServiceClientTest {
+
+    private static WireMockServer wireMockServer;
+
+    private AsyncStockServiceClient client;
+
+    private final String STOCK_SERVICE_QUERY = "/api/stock?item=my-item";
+
+    @BeforeAll
+    static void startWiremock() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+    }
+
+    @AfterAll
+    static void stopWiremock() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer.resetAll();
+        client = new AsyncStockServiceClient("http://localhost:" + wireMockServer.port() + "/api/stock", 10, 1,
+                Duration.ofMillis(500), Duration.ofMillis(300), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void checkAvailable_Success() throws Exception {
+        stub(aResponse().withStatus(200).withBody("true"));
+
+        assertThat(client.checkAvailable("my-item").get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void checkAvailable_Unavailable() throws Exception {
+        stub(aResponse().withStatus(200).withBody("false"));
+
+        assertThat(client.checkAvailable("my-item").get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void checkAvailable_ServerError() {
+        stub(aResponse().withStatus(503).withBody("service unavailable"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> client.checkAvailable("my-item").get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+        assertThat(exception.getCause().getMessage()).isEqualTo("error 503");
+    }
+
+    @Test
+    void checkAvailable_Timeout() {
+        stub(aResponse().withStatus(200).withBody("true").withFixedDelay(2000));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> client.checkAvailable("my-item").get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+    }
+
+    @Test
+    void checkAvailable_ClientError() {
+        stub(aResponse().withStatus(400).withBody("Bad Request"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> client.checkAvailable("my-item").get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isNotInstanceOf(RetryableException.class);
+        assertThat(exception.getCause().getMessage()).isEqualTo("error 400");
+    }
+
+    private void stub(ResponseDefinitionBuilder response) {
+        wireMockServer.stubFor(get(urlEqualTo(STOCK_SERVICE_QUERY)).willReturn(response));
+    }
+}
@@ -0,0 +1,156 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class CachingStockServiceClientTest {
+
+    private RestTemplate restTemplateMock;
+
+    private CachingStockServiceClient client;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final List<Runnable> refreshes = new ArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final String STOCK_SERVICE_ITEM = "my-item";
+    private final String STOCK_SERVICE_QUERY = "endpoint?item=" + STOCK_SERVICE_ITEM;
+
+    @BeforeEach
+    void setUp() {
+        restTemplateMock = mock(RestTemplate.class);
+        client = new CachingStockServiceClient(restTemplateMock, "endpoint", 100,
+                Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(20), nanos::get, refreshes::add, meterRegistry);
+    }
+
+    @Test
+    void checkAvailable_CachesAvailableItem() {
+        stubResponse("true");
+
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("true");
+        advance(Duration.ofSeconds(10));
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("true");
+
+        verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "stock", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "stock", "result", "miss").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void checkAvailable_UnavailableItemExpiresFirst() {
+        stubResponse("false");
+
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        advance(Duration.ofSeconds(6));
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+
+        verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    void checkAvailable_RefreshesAheadOfExpiry() {
+        stubResponse("true");
+
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        advance(Duration.ofSeconds(21));
+        stubResponse("false");
+
+        // the stale answer is served while the refresh reloads the entry
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("true");
+        refreshes.forEach(Runnable::run);
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("false");
+        verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    void checkAvailable_FailureIsNotCached() {
+        doThrow(new HttpServerErrorException(HttpStatusCode.valueOf(500)))
+                .when(restTemplateMock).getForEntity(STOCK_SERVICE_QUERY, String.class);
+
+        assertThrows(RetryableException.class, () -> client.checkAvailable(STOCK_SERVICE_ITEM));
+
+        stubResponse("true");
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("true");
+    }
+
+    @Test
+    void invalidate_NextLookupGoesBackToTheStockService() {
+        stubResponse("true");
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+
+        client.invalidate(STOCK_SERVICE_ITEM);
+        stubResponse("false");
+
+        assertThat(client.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("false");
+        verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    void invalidateAll_NextLookupGoesBackToTheStockService() {
+        stubResponse("true");
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+
+        client.invalidateAll();
+
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    void invalidate_AlsoDropsTheEntryOfTheWrappedClient() {
+        StockAvailability other = mock(StockAvailability.class);
+        when(other.checkAvailable(STOCK_SERVICE_ITEM)).thenReturn("true", "false");
+        StockAvailability withOther = client.withClient(other);
+        withOther.checkAvailable(STOCK_SERVICE_ITEM);
+
+        client.invalidate(STOCK_SERVICE_ITEM);
+
+        assertThat(withOther.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("false");
+        verify(other, times(2)).checkAvailable(STOCK_SERVICE_ITEM);
+    }
+
+    @Test
+    void withClient_SharesTheCache() {
+        stubResponse("true");
+        StockAvailability other = mock(StockAvailability.class);
+        when(other.checkAvailable("other-item")).thenReturn("false");
+        StockAvailability withOther = client.withClient(other);
+
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        assertThat(withOther.checkAvailable(STOCK_SERVICE_ITEM)).isEqualTo("true");
+        assertThat(withOther.checkAvailable("other-item")).isEqualTo("false");
+        assertThat(withOther.checkAvailable("other-item")).isEqualTo("false");
+
+        verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+        verify(other, times(1)).checkAvailable("other-item");
+        verifyNoMoreInteractions(other);
+    }
+
+    private void stubResponse(String available) {
+        doReturn(new ResponseEntity<>(available, HttpStatusCode.valueOf(200)))
+                .when(restTemplateMock).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
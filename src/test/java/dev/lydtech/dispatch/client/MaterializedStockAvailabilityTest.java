@@ -0,0 +1,173 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class MaterializedStockAvailabilityTest {
+
+    private static final String TOPIC = "stock.levels";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<String, String> consumer;
+    private StockServiceClient stockServiceClientMock;
+    private SimpleMeterRegistry meterRegistry;
+    private MaterializedStockAvailability view;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        Node node = new Node(0, "localhost", 9092);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, node, new Node[]{node}, new Node[]{node})));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        stockServiceClientMock = mock(StockServiceClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (view != null && view.isRunning()) {
+            view.stop();
+        }
+    }
+
+    @Test
+    void testCheckAvailable_AnsweredFromTheRestoredView() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, "item-1", "3"));
+            consumer.addRecord(record(1, "item-2", "5"));
+            consumer.addRecord(record(2, "item-2", "0"));
+            consumer.addRecord(record(3, "item-3", "not-a-number"));
+        });
+        view = start(stockServiceClientMock);
+
+        assertThat(view.isReady()).isTrue();
+        assertThat(view.checkAvailable("item-1")).isEqualTo("true");
+        assertThat(view.checkAvailable("item-2")).isEqualTo("false");
+        verifyNoInteractions(stockServiceClientMock);
+        assertThat(meterRegistry.get("dispatch.stock.view.items").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("dispatch.stock.view.lookups").tag("source", "view").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void testCheckAvailable_FollowsTheTopicOnceRestored() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "item-1", "3")));
+        view = start(null);
+
+        consumer.schedulePollTask(() -> consumer.addRecord(record(1, "item-1", null)));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(2, "item-2", "1")));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> view.checkAvailable("item-2").equals("true"));
+        assertThat(view.checkAvailable("item-1")).isEqualTo("false");
+    }
+
+    @Test
+    void testCheckAvailable_UnknownItemFallsBackToTheStockService() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        when(stockServiceClientMock.checkAvailable("item-1")).thenReturn("true");
+        view = start(stockServiceClientMock);
+
+        assertThat(view.checkAvailable("item-1")).isEqualTo("true");
+        verify(stockServiceClientMock).checkAvailable("item-1");
+        assertThat(meterRegistry.get("dispatch.stock.view.lookups").tag("source", "http").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testCheckAvailable_UnknownItemWithoutFallbackIsUnavailable() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        view = start(null);
+
+        assertThat(view.checkAvailable("item-1")).isEqualTo("false");
+    }
+
+    @Test
+    void testCheckAvailable_RestoringFallsBackToTheStockService() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 10L));
+        when(stockServiceClientMock.checkAvailable("item-1")).thenReturn("false");
+        view = start(stockServiceClientMock);
+
+        assertThat(view.isReady()).isFalse();
+        assertThat(view.checkAvailable("item-1")).isEqualTo("false");
+        verify(stockServiceClientMock).checkAvailable("item-1");
+    }
+
+    @Test
+    void testCheckAvailable_RestoringWithoutFallbackIsRetryable() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 10L));
+        view = start(null);
+
+        assertThrows(RetryableException.class, () -> view.checkAvailable("item-1"));
+    }
+
+    @Test
+    void testWithClient_UnknownItemFallsBackToTheClient() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "item-1", "3")));
+        StockAvailability other = mock(StockAvailability.class);
+        when(other.checkAvailable("item-2")).thenReturn("true");
+        view = start(stockServiceClientMock);
+
+        StockAvailability withOther = view.withClient(other);
+
+        assertThat(withOther.checkAvailable("item-1")).isEqualTo("true");
+        assertThat(withOther.checkAvailable("item-2")).isEqualTo("true");
+        verify(other).checkAvailable("item-2");
+        verifyNoMoreInteractions(other);
+        verifyNoInteractions(stockServiceClientMock);
+    }
+
+    @Test
+    void testWithClient_WithoutFallbackIsTheViewAlone() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        view = start(null);
+
+        assertThat(view.withClient(mock(StockAvailability.class))).isSameAs(view);
+    }
+
+    @Test
+    void testHealth_OutOfServiceUntilRestored() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        view = start(null);
+
+        assertThat(view.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(view.health().getDetails()).containsEntry("restoreLag", 1L);
+
+        consumer.schedulePollTask(() -> consumer.addRecord(record(0, "item-1", "3")));
+
+        await().atMost(5, TimeUnit.SECONDS).until(view::isReady);
+        assertThat(view.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(view.health().getDetails()).containsEntry("items", 1);
+    }
+
+    private MaterializedStockAvailability start(StockServiceClient fallback) {
+        MaterializedStockAvailability view = new MaterializedStockAvailability(consumer, TOPIC, Duration.ofSeconds(1),
+                fallback, meterRegistry);
+        view.start();
+        return view;
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String item, String level) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, item, level);
+    }
+}
@@ -0,0 +1,63 @@
+package dev.lydtech.dispatch.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockLatencyTrackerTest {
+
+    private static final String ITEM = "my-item";
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private StockLatencyTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new StockLatencyTracker(Duration.ofMillis(200), 0.5, 100, Duration.ofMinutes(1), ticker::get);
+    }
+
+    @Test
+    void record_FirstLookupSetsTheAverageAndLaterOnesMoveIt() {
+        tracker.record(ITEM, millis(100));
+        assertThat(tracker.averageNanos(ITEM)).isEqualTo(millis(100));
+
+        tracker.record(ITEM, millis(500));
+        assertThat(tracker.averageNanos(ITEM)).isEqualTo(millis(300));
+    }
+
+    @Test
+    void isSlow_WhileTheAverageIsOverTheThreshold() {
+        assertThat(tracker.isSlow(ITEM)).isFalse();
+
+        tracker.record(ITEM, millis(100));
+        assertThat(tracker.isSlow(ITEM)).isFalse();
+
+        tracker.record(ITEM, millis(900));
+        assertThat(tracker.isSlow(ITEM)).isTrue();
+        assertThat(tracker.isSlow("other-item")).isFalse();
+
+        tracker.record(ITEM, millis(10));
+        tracker.record(ITEM, millis(10));
+        assertThat(tracker.isSlow(ITEM)).isFalse();
+    }
+
+    @Test
+    void isSlow_ItemIsForgottenWithoutLookups() {
+        tracker.record(ITEM, millis(900));
+        ticker.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertThat(tracker.isSlow(ITEM)).isTrue();
+
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(tracker.isSlow(ITEM)).isFalse();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -9,10 +9,16 @@ import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import static javax.management.Query.eq;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class StockServiceClientTest {
@@ -70,4 +76,112 @@ public class StockServiceClientTest {
         verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
         assertThat(exception.getMessage()).isEqualTo("runtime exception");
     }
+
+    @Test
+    public void testCheckAvailability_ConcurrentLookupsShareOneRequest() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class)).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseResponse.await();
+            return new ResponseEntity<>("true", HttpStatusCode.valueOf(200));
+        });
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> client.checkAvailable(STOCK_SERVICE_ITEM));
+        requestStarted.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> client.checkAvailable(STOCK_SERVICE_ITEM));
+        TimeUnit.MILLISECONDS.sleep(100);
+        releaseResponse.countDown();
+
+        assertThat(leader.get()).isEqualTo("true");
+        assertThat(follower.get()).isEqualTo("true");
+        verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    public void testCheckAvailability_ConcurrentLookupsShareFailure() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class)).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseResponse.await();
+            throw new HttpServerErrorException(HttpStatusCode.valueOf(503));
+        });
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> client.checkAvailable(STOCK_SERVICE_ITEM));
+        requestStarted.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> client.checkAvailable(STOCK_SERVICE_ITEM));
+        TimeUnit.MILLISECONDS.sleep(100);
+        releaseResponse.countDown();
+
+        ExecutionException leaderException = assertThrows(ExecutionException.class, leader::get);
+        ExecutionException followerException = assertThrows(ExecutionException.class, follower::get);
+        assertThat(leaderException.getCause()).isInstanceOf(RetryableException.class);
+        assertThat(followerException.getCause()).isInstanceOf(RetryableException.class);
+        verify(restTemplateMock, times(1)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    public void testCheckAvailability_SequentialLookupsAreNotShared() {
+        ResponseEntity<String> response = new ResponseEntity<>("true", HttpStatusCode.valueOf(200));
+
+        when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class)).thenReturn(response);
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        verify(restTemplateMock, times(2)).getForEntity(STOCK_SERVICE_QUERY, String.class);
+    }
+
+    @Test
+    public void testCheckAvailability_RecordsTheLatencyOfSucceededAndFailedLookups() {
+        StockLatencyTracker latencyTracker = mock(StockLatencyTracker.class);
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, null, latencyTracker);
+        when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class))
+                .thenReturn(new ResponseEntity<>("true", HttpStatusCode.valueOf(200)))
+                .thenThrow(new HttpServerErrorException(HttpStatusCode.valueOf(503)));
+
+        client.checkAvailable(STOCK_SERVICE_ITEM);
+        assertThrows(RetryableException.class, () -> client.checkAvailable(STOCK_SERVICE_ITEM));
+
+        verify(latencyTracker, times(2)).record(eq(STOCK_SERVICE_ITEM), anyLong());
+    }
+
+    @Test
+    public void testCheckAvailableAsync_ConcurrentLookupsShareOneNonBlockingCall() {
+        AsyncStockServiceClient asyncClient = mock(AsyncStockServiceClient.class);
+        StockLatencyTracker latencyTracker = mock(StockLatencyTracker.class);
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, null, latencyTracker, asyncClient);
+        CompletableFuture<Boolean> response = new CompletableFuture<>();
+        when(asyncClient.checkAvailable(STOCK_SERVICE_ITEM)).thenReturn(response);
+
+        CompletableFuture<String> leader = client.checkAvailableAsync(STOCK_SERVICE_ITEM);
+        CompletableFuture<String> follower = client.checkAvailableAsync(STOCK_SERVICE_ITEM);
+        assertThat(leader).isNotDone();
+        response.complete(true);
+
+        assertThat(leader.join()).isEqualTo("true");
+        assertThat(follower.join()).isEqualTo("true");
+        verify(asyncClient, times(1)).checkAvailable(STOCK_SERVICE_ITEM);
+        verify(latencyTracker, times(1)).record(eq(STOCK_SERVICE_ITEM), anyLong());
+        verifyNoInteractions(restTemplateMock);
+    }
+
+    @Test
+    public void testCheckAvailableAsync_FailureIsNotWrapped() {
+        AsyncStockServiceClient asyncClient = mock(AsyncStockServiceClient.class);
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, null, null, asyncClient);
+        when(asyncClient.checkAvailable(STOCK_SERVICE_ITEM))
+                .thenReturn(CompletableFuture.failedFuture(new RetryableException("unavailable")));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.checkAvailableAsync(STOCK_SERVICE_ITEM).get());
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+    }
+
+    @Test
+    public void testCheckAvailableAsync_WithoutNonBlockingClientLooksUpInline() {
+        when(restTemplateMock.getForEntity(STOCK_SERVICE_QUERY, String.class))
+                .thenReturn(new ResponseEntity<>("false", HttpStatusCode.valueOf(200)));
+
+        assertThat(client.checkAvailableAsync(STOCK_SERVICE_ITEM).join()).isEqualTo("false");
+    }
 }
@@ -0,0 +1,152 @@
+package dev.lydtech.dispatch.client;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StockServiceGuardTest {
+
+    private static final String STOCK_SERVICE_ENDPOINT = "endpoint";
+    private static final String STOCK_SERVICE_QUERY = STOCK_SERVICE_ENDPOINT + "?item=";
+
+    private RestTemplate restTemplateMock;
+    private AdaptiveConcurrencyLimiter limiter;
+    private CircuitBreaker circuitBreaker;
+    private SimpleMeterRegistry meterRegistry;
+    private StockServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        restTemplateMock = mock(RestTemplate.class);
+        limiter = new AdaptiveConcurrencyLimiter(10, 1, 12, TimeUnit.SECONDS.toNanos(1));
+        circuitBreaker = new CircuitBreaker("test", 4, 4, 0.5, TimeUnit.SECONDS.toNanos(5), 1, new AtomicLong()::get);
+        meterRegistry = new SimpleMeterRegistry();
+        StockServiceGuard guard = new StockServiceGuard(limiter, circuitBreaker, Duration.ofSeconds(1), meterRegistry);
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, guard);
+    }
+
+    @Test
+    void testCheckAvailable_OpenBreakerFailsFastWithoutCallingStockService() {
+        when(restTemplateMock.getForEntity(anyString(), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RetryableException.class, () -> client.checkAvailable("my-item"));
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        RetryableException exception = assertThrows(RetryableException.class, () -> client.checkAvailable("my-item"));
+        assertThat(exception.getMessage()).isEqualTo("Stock service circuit breaker is open");
+        verify(restTemplateMock, times(4)).getForEntity(STOCK_SERVICE_QUERY + "my-item", String.class);
+        assertThat(meterRegistry.get("dispatch.stock.circuit-breaker.state").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("dispatch.stock.rejected").tag("reason", "open").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testCheckAvailable_FailuresShrinkTheLimit() {
+        when(restTemplateMock.getForEntity(anyString(), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(RetryableException.class, () -> client.checkAvailable("my-item"));
+
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(meterRegistry.get("dispatch.stock.concurrency.limit").gauge().value()).isEqualTo(9.0);
+    }
+
+    @Test
+    void testCheckAvailable_NotRetryableFailureLeavesTheLimit() {
+        when(restTemplateMock.getForEntity(anyString(), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("false", HttpStatus.ACCEPTED));
+
+        assertThrows(RuntimeException.class, () -> client.checkAvailable("my-item"));
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testCheckAvailable_CallsOverTheLimitFailFast() throws Exception {
+        limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, TimeUnit.SECONDS.toNanos(1));
+        StockServiceGuard guard = new StockServiceGuard(limiter, circuitBreaker, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, guard);
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        when(restTemplateMock.getForEntity(anyString(), eq(String.class))).thenAnswer(invocation -> {
+            callStarted.countDown();
+            releaseCall.await(5, TimeUnit.SECONDS);
+            return new ResponseEntity<>("true", HttpStatus.OK);
+        });
+
+        Thread first = new Thread(() -> client.checkAvailable("item-1"));
+        first.start();
+        assertThat(callStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RetryableException exception = assertThrows(RetryableException.class, () -> client.checkAvailable("item-2"));
+        assertThat(exception.getMessage()).isEqualTo("Stock service concurrency limit of 1 reached");
+        releaseCall.countDown();
+        first.join();
+        verify(restTemplateMock, never()).getForEntity(STOCK_SERVICE_QUERY + "item-2", String.class);
+    }
+
+    @Test
+    void testCheckAvailable_SuccessGrowsTheLimitInUse() {
+        limiter = new AdaptiveConcurrencyLimiter(1, 1, 5, TimeUnit.SECONDS.toNanos(1));
+        StockServiceGuard guard = new StockServiceGuard(limiter, circuitBreaker, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        client = new StockServiceClient(restTemplateMock, STOCK_SERVICE_ENDPOINT, guard);
+        when(restTemplateMock.getForEntity(anyString(), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("true", HttpStatus.OK));
+
+        client.checkAvailable("my-item");
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void testCallAsync_HoldsThePermitUntilTheLookupCompletes() {
+        limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, TimeUnit.SECONDS.toNanos(1));
+        StockServiceGuard guard = new StockServiceGuard(limiter, circuitBreaker, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = guard.callAsync(() -> pending);
+        CompletableFuture<String> rejected = guard.callAsync(() -> CompletableFuture.completedFuture("true"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class)
+                .hasMessage("Stock service concurrency limit of 1 reached");
+        pending.complete("true");
+        assertThat(first.join()).isEqualTo("true");
+        assertThat(guard.callAsync(() -> CompletableFuture.completedFuture("false")).join()).isEqualTo("false");
+    }
+
+    @Test
+    void testCallAsync_FailedLookupsOpenTheBreaker() {
+        StockServiceGuard guard = new StockServiceGuard(limiter, circuitBreaker, Duration.ofSeconds(1), meterRegistry);
+        for (int i = 0; i < 4; i++) {
+            guard.callAsync(() -> CompletableFuture.<String>failedFuture(new RetryableException("unavailable")));
+        }
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> guard.callAsync(() -> CompletableFuture.completedFuture("true")).get());
+        assertThat(exception.getCause()).hasMessage("Stock service circuit breaker is open");
+    }
+}
@@ -0,0 +1,107 @@
+package dev.lydtech.dispatch.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessedOrderStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    void contains_AddedOrdersOnly() {
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 1000, null, clock::get);
+        UUID orderId = randomUUID();
+
+        assertThat(store.contains(orderId)).isFalse();
+        store.add(orderId);
+
+        assertThat(store.contains(orderId)).isTrue();
+        assertThat(store.contains(randomUUID())).isFalse();
+    }
+
+    @Test
+    void contains_BloomFilterFalsePositivesAreNotReported() {
+        // filters sized for far fewer orders than added, so that most lookups of new orders are false positives
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 1, 10, 5000, null, clock::get);
+        for (int i = 0; i < 5000; i++) {
+            store.add(randomUUID());
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertThat(store.contains(randomUUID())).isFalse();
+        }
+    }
+
+    @Test
+    void contains_OrdersExpireAfterTheRetention() {
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 1000, null, clock::get);
+        UUID first = randomUUID();
+        store.add(first);
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        UUID second = randomUUID();
+        store.add(second);
+
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        assertThat(store.contains(first)).isFalse();
+        assertThat(store.contains(second)).isTrue();
+
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        assertThat(store.contains(second)).isFalse();
+    }
+
+    @Test
+    void contains_OldestOrdersAreEvictedBeyondMaxOrders() {
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 3, null, clock::get);
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            orderIds.add(randomUUID());
+            store.add(orderIds.get(i));
+        }
+        store.add(orderIds.get(3));
+
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(store.contains(orderIds.get(0))).isFalse();
+        assertThat(orderIds.subList(1, 4)).allMatch(store::contains);
+    }
+
+    @Test
+    void contains_FileSurvivesRestart(@TempDir Path directory) {
+        Path file = directory.resolve("processed-orders");
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 1000, file, clock::get);
+        UUID orderId = randomUUID();
+        store.add(orderId);
+        store.close();
+
+        clock.addAndGet(Duration.ofMinutes(20).toMillis());
+        ProcessedOrderStore reopened = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 1000, file, clock::get);
+
+        assertThat(reopened.contains(orderId)).isTrue();
+        assertThat(reopened.size()).isEqualTo(1);
+        reopened.close();
+    }
+
+    @Test
+    void contains_FileOfOtherSizesStartsAfresh(@TempDir Path directory) {
+        Path file = directory.resolve("processed-orders");
+        ProcessedOrderStore store = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 1000, file, clock::get);
+        UUID orderId = randomUUID();
+        store.add(orderId);
+        store.close();
+
+        ProcessedOrderStore resized = new ProcessedOrderStore(Duration.ofMinutes(60), 6, 1000, 2000, file, clock::get);
+
+        assertThat(resized.contains(orderId)).isFalse();
+        assertThat(resized.size()).isZero();
+        resized.close();
+    }
+}
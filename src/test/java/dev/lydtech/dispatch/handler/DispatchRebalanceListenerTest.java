@@ -0,0 +1,73 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DispatchRebalanceListenerTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("order.created", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("order.created", 1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private Consumer<?, ?> consumer;
+    private DispatchRebalanceListener listener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = mock(Consumer.class);
+        listener = new DispatchRebalanceListener(new DispatchMetrics(meterRegistry));
+    }
+
+    @Test
+    void onPartitionsAssigned_CountsPartitions() {
+        listener.onPartitionsAssigned(consumer, List.of(PARTITION_0, PARTITION_1));
+
+        assertThat(count("assigned")).isEqualTo(2);
+    }
+
+    @Test
+    void onPartitionsRevokedAfterCommit_CountsPartitionsAndReadsTheirPosition() {
+        when(consumer.position(PARTITION_0)).thenReturn(42L);
+        when(consumer.position(PARTITION_1)).thenThrow(new IllegalStateException("No current assignment"));
+
+        listener.onPartitionsRevokedAfterCommit(consumer, List.of(PARTITION_0, PARTITION_1));
+
+        verify(consumer).position(PARTITION_0);
+        assertThat(count("revoked")).isEqualTo(2);
+    }
+
+    @Test
+    void onPartitionsLost_CountsPartitions() {
+        listener.onPartitionsLost(consumer, List.of(PARTITION_1));
+
+        assertThat(count("lost")).isEqualTo(1);
+        assertThat(count("revoked")).isZero();
+    }
+
+    @Test
+    void emptyCooperativeRebalance_IsIgnored() {
+        listener.onPartitionsAssigned(consumer, List.of());
+        listener.onPartitionsRevokedAfterCommit(consumer, List.of());
+
+        verifyNoInteractions(consumer);
+        assertThat(count("assigned")).isZero();
+        assertThat(count("revoked")).isZero();
+    }
+
+    private double count(String event) {
+        return meterRegistry.get("dispatch.rebalance.partitions").tag("event", event).counter().count();
+    }
+}
@@ -0,0 +1,170 @@
+package dev.lydtech.dispatch.handler;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedProcessorTest {
+
+    private static final String TOPIC = "order.created";
+
+    private KeyOrderedProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new KeyOrderedProcessor(KeyOrderedProcessor.createExecutor("platform", 4), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.close();
+    }
+
+    @Test
+    void process_KeepsOrderPerKey() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, 0, "key-1"), record(0, 1, "key-2"), record(0, 2, "key-1"),
+                record(0, 3, "key-2"), record(0, 4, "key-1"));
+        Queue<Long> key1Offsets = new ConcurrentLinkedQueue<>();
+
+        KeyOrderedProcessor.Result result = processor.process(records, record -> {
+            if (record.key().equals("key-1")) {
+                key1Offsets.add(record.offset());
+            }
+        });
+
+        assertThat(key1Offsets).containsExactly(0L, 2L, 4L);
+        assertThat(result.failedIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    void process_RunsDistinctKeysConcurrently() {
+        List<ConsumerRecord<String, String>> records = List.of(record(0, 0, "key-1"), record(0, 1, "key-2"));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        KeyOrderedProcessor.Result result = processor.process(records, record -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("keys were processed one after the other");
+            }
+        });
+
+        assertThat(result.failedIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    void process_FailureSkipsLaterRecordsOfTheSameKey() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, 0, "key-1"), record(0, 1, "key-1"), record(0, 2, "key-1"), record(0, 3, "key-2"));
+        Queue<Long> processed = new ConcurrentLinkedQueue<>();
+        RuntimeException failure = new RuntimeException("Service failure");
+
+        KeyOrderedProcessor.Result result = processor.process(records, record -> {
+            if (record.offset() == 1) {
+                throw failure;
+            }
+            processed.add(record.offset());
+        });
+
+        assertThat(processed).containsExactlyInAnyOrder(0L, 3L);
+        assertThat(result.failedIndex()).isEqualTo(1);
+        assertThat(result.failure()).isSameAs(failure);
+    }
+
+    @Test
+    void process_FailedIndexIsTheFirstFailureOfThePoll() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, 10, "key-1"), record(0, 11, "key-2"), record(0, 12, "key-3"), record(0, 13, "key-1"),
+                record(1, 20, "key-4"), record(1, 21, "key-5"),
+                record(2, 30, "key-6"));
+
+        RuntimeException first = new RuntimeException("Service failure");
+        Queue<Long> processed = new ConcurrentLinkedQueue<>();
+
+        KeyOrderedProcessor.Result result = processor.process(records, record -> {
+            if (record.offset() == 11) {
+                throw first;
+            }
+            if (record.offset() == 30) {
+                throw new RuntimeException("Service failure");
+            }
+            processed.add(record.offset());
+        });
+
+        assertThat(result.failedIndex()).isEqualTo(1);
+        assertThat(result.failure()).isSameAs(first);
+        assertThat(processed).contains(10L);
+    }
+
+    @Test
+    void createExecutor_FallsBackToPlatformThreads() {
+        KeyOrderedProcessor virtual = new KeyOrderedProcessor(KeyOrderedProcessor.createExecutor("virtual", 2), Duration.ofSeconds(5));
+        try {
+            KeyOrderedProcessor.Result result = virtual.process(List.of(record(0, 0, "key-1")), record -> { });
+            assertThat(result.failedIndex()).isEqualTo(-1);
+        } finally {
+            virtual.close();
+        }
+    }
+
+    @Test
+    void close_WaitsForTheRecordsBeingProcessed() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        KeyOrderedProcessor closing = new KeyOrderedProcessor(executor, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            sleep(200);
+        });
+        started.await();
+
+        closing.close();
+
+        assertThat(executor.isTerminated()).isTrue();
+    }
+
+    @Test
+    void close_InterruptsTheRecordsStillProcessedAfterTheDrainTimeout() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        KeyOrderedProcessor closing = new KeyOrderedProcessor(executor, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                TimeUnit.SECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        started.await();
+
+        closing.close();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset, String key) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, key, "value-" + offset);
+    }
+}
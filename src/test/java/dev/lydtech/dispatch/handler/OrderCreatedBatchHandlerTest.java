@@ -0,0 +1,108 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.service.DispatchService;
+import dev.lydtech.dispatch.util.TestEventData;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderCreatedBatchHandlerTest {
+
+    private OrderCreatedBatchHandler handler;
+    private DispatchService dispatchServiceMock;
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecovererMock;
+
+    @BeforeEach
+    void setUp() {
+        dispatchServiceMock = mock(DispatchService.class);
+        deadLetterPublishingRecovererMock = mock(DeadLetterPublishingRecoverer.class);
+        handler = new OrderCreatedBatchHandler(dispatchServiceMock, deadLetterPublishingRecovererMock, new HotPathLog(0, Duration.ZERO));
+    }
+
+    @Test
+    void listen_Success() {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+
+        handler.listen(records);
+        verify(dispatchServiceMock, times(1)).processBatch(records);
+    }
+
+    @Test
+    void listen_ServiceThrowsNotRetryableException() {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new BatchListenerFailedException("Service failure", new RuntimeException("Service failure"), 1))
+                .when(dispatchServiceMock).processBatch(records);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        assertThat(exception.getIndex()).isEqualTo(1);
+        assertThat(exception.getCause()).isInstanceOf(NotRetryableException.class);
+        assertThat(exception.getCause().getMessage()).isEqualTo("java.lang.RuntimeException: Service failure");
+        verifyNoInteractions(deadLetterPublishingRecovererMock);
+    }
+
+    @Test
+    void listen_InTransaction_DeadLettersNotRetryableRecord() {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new BatchListenerFailedException("Service failure", new RuntimeException("Service failure"), 0))
+                .when(dispatchServiceMock).processBatch(records);
+
+        handler = new OrderCreatedBatchHandler(dispatchServiceMock, deadLetterPublishingRecovererMock,
+                new HotPathLog(0, Duration.ZERO), true, 4);
+        handler.listen(records);
+
+        verify(deadLetterPublishingRecovererMock, times(1)).accept(eq(records.get(0)), any(NotRetryableException.class));
+        verify(dispatchServiceMock, times(1)).processBatch(records.subList(1, 2));
+    }
+
+    @Test
+    void listen_ServiceThrowsRetryableException() {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new BatchListenerFailedException("retry failure", new RetryableException("retry failure"), 0))
+                .when(dispatchServiceMock).processBatch(records);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        assertThat(exception.getIndex()).isEqualTo(0);
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+    }
+
+    @Test
+    void listen_InTransaction_DeadLettersRetryableRecordOutOfAttempts() {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new BatchListenerFailedException("retry failure", new RetryableException("retry failure"), 0))
+                .when(dispatchServiceMock).processBatch(records);
+        handler = new OrderCreatedBatchHandler(dispatchServiceMock, deadLetterPublishingRecovererMock,
+                new HotPathLog(0, Duration.ZERO), true, 3);
+
+        assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        verifyNoInteractions(deadLetterPublishingRecovererMock);
+
+        handler.listen(records);
+        verify(deadLetterPublishingRecovererMock, times(1)).accept(eq(records.get(0)), any(RetryableException.class));
+        verify(dispatchServiceMock, times(1)).processBatch(records.subList(1, 2));
+    }
+
+    private List<ConsumerRecord<String, OrderCreated>> buildRecords() {
+        return List.of(
+                new ConsumerRecord<>("order.created", 0, 0, randomUUID().toString(),
+                        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())),
+                new ConsumerRecord<>("order.created", 0, 1, randomUUID().toString(),
+                        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())));
+    }
+}
@@ -2,6 +2,7 @@ package dev.lydtech.dispatch.handler;
 
 import dev.lydtech.dispatch.exception.NotRetryableException;
 import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
 import dev.lydtech.dispatch.message.OrderCreated;
 import dev.lydtech.dispatch.service.DispatchService;
 import dev.lydtech.dispatch.util.TestEventData;
@@ -9,6 +10,7 @@ import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -23,7 +25,7 @@ class OrderCreatedHandlerTest {
     @BeforeEach
     void setUp() {
         dispatchServiceMock = mock(DispatchService.class);
-        handler = new OrderCreatedHandler(dispatchServiceMock);
+        handler = new OrderCreatedHandler(dispatchServiceMock, new HotPathLog(0, Duration.ZERO));
     }
 
     @Test
@@ -33,7 +35,7 @@ class OrderCreatedHandlerTest {
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
         handler.listen(0, key, testEvent);
-        verify(dispatchServiceMock, times(1)).process(key, testEvent);
+        verify(dispatchServiceMock, times(1)).process(0, key, testEvent);
     }
 
     @Test
@@ -42,11 +44,11 @@ class OrderCreatedHandlerTest {
         String key = randomUUID().toString();
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
-        doThrow(new RuntimeException("Service failure")).when(dispatchServiceMock).process(key, testEvent);
+        doThrow(new RuntimeException("Service failure")).when(dispatchServiceMock).process(0, key, testEvent);
 
         Exception exception = assertThrows(NotRetryableException.class, () -> handler.listen(0, key, testEvent));
         assertThat(exception.getMessage()).isEqualTo("java.lang.RuntimeException: Service failure");
-        verify(dispatchServiceMock, times(1)).process(key, testEvent);
+        verify(dispatchServiceMock, times(1)).process(0, key, testEvent);
     }
 
 
@@ -56,10 +58,36 @@ class OrderCreatedHandlerTest {
         String key = randomUUID().toString();
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
-        doThrow(new RetryableException("retry failure")).when(dispatchServiceMock).process(key, testEvent);
+        doThrow(new RetryableException("retry failure")).when(dispatchServiceMock).process(0, key, testEvent);
 
         Exception exception = assertThrows(RetryableException.class, () -> handler.listen(0, key, testEvent));
         assertThat(exception.getMessage()).isEqualTo("retry failure");
-        verify(dispatchServiceMock, times(1)).process(key, testEvent);
+        verify(dispatchServiceMock, times(1)).process(0, key, testEvent);
     }
-}
\ No newline at end of file
+
+    @Test
+    @SneakyThrows
+    void listen_ReroutedOrderIsNotProcessed()  {
+        SlowLaneRouter slowLaneRouterMock = mock(SlowLaneRouter.class);
+        handler = new OrderCreatedHandler(dispatchServiceMock, new HotPathLog(0, Duration.ZERO), slowLaneRouterMock);
+        String key = randomUUID().toString();
+
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+        when(slowLaneRouterMock.reroute(key, testEvent)).thenReturn(true);
+        handler.listen(0, key, testEvent);
+        verify(slowLaneRouterMock, times(1)).reroute(key, testEvent);
+        verifyNoInteractions(dispatchServiceMock);
+    }
+
+    @Test
+    @SneakyThrows
+    void listen_NotReroutedOrderIsProcessed()  {
+        SlowLaneRouter slowLaneRouterMock = mock(SlowLaneRouter.class);
+        handler = new OrderCreatedHandler(dispatchServiceMock, new HotPathLog(0, Duration.ZERO), slowLaneRouterMock);
+        String key = randomUUID().toString();
+
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+        handler.listen(0, key, testEvent);
+        verify(dispatchServiceMock, times(1)).process(0, key, testEvent);
+    }
+}
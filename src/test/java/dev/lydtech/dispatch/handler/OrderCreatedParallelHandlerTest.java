@@ -0,0 +1,89 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.exception.NotRetryableException;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.service.DispatchService;
+import dev.lydtech.dispatch.util.TestEventData;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderCreatedParallelHandlerTest {
+
+    private OrderCreatedParallelHandler handler;
+    private DispatchService dispatchServiceMock;
+    private KeyOrderedProcessor keyOrderedProcessor;
+
+    @BeforeEach
+    void setUp() {
+        dispatchServiceMock = mock(DispatchService.class);
+        keyOrderedProcessor = new KeyOrderedProcessor(KeyOrderedProcessor.createExecutor("platform", 2), Duration.ofSeconds(5));
+        handler = new OrderCreatedParallelHandler(dispatchServiceMock, keyOrderedProcessor, new HotPathLog(0, Duration.ZERO), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyOrderedProcessor.close();
+    }
+
+    @Test
+    void listen_Success() throws Exception {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+
+        handler.listen(records);
+        verify(dispatchServiceMock, times(1)).process(records.get(0).partition(), records.get(0).key(), records.get(0).value());
+        verify(dispatchServiceMock, times(1)).process(records.get(1).partition(), records.get(1).key(), records.get(1).value());
+    }
+
+    @Test
+    void listen_ServiceThrowsRetryableException() throws Exception {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new RetryableException("retry failure")).when(dispatchServiceMock).process(anyInt(), eq(records.get(1).key()), any());
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        assertThat(exception.getIndex()).isEqualTo(1);
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+        verify(dispatchServiceMock, times(1)).process(records.get(0).partition(), records.get(0).key(), records.get(0).value());
+    }
+
+    @Test
+    void listen_ServiceThrowsException() throws Exception {
+        List<ConsumerRecord<String, OrderCreated>> records = buildRecords();
+        doThrow(new RuntimeException("Service failure")).when(dispatchServiceMock).process(anyInt(), anyString(), any());
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> handler.listen(records));
+        assertThat(exception.getIndex()).isEqualTo(0);
+        assertThat(exception.getCause()).isInstanceOf(NotRetryableException.class);
+        assertThat(exception.getCause().getMessage()).isEqualTo("java.lang.RuntimeException: Service failure");
+    }
+
+    @Test
+    void construct_TransactionsEnabled() {
+        assertThrows(IllegalStateException.class,
+                () -> new OrderCreatedParallelHandler(dispatchServiceMock, keyOrderedProcessor, new HotPathLog(0, Duration.ZERO), true));
+    }
+
+    private List<ConsumerRecord<String, OrderCreated>> buildRecords() {
+        return List.of(
+                new ConsumerRecord<>("order.created", 0, 0, randomUUID().toString(),
+                        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())),
+                new ConsumerRecord<>("order.created", 0, 1, randomUUID().toString(),
+                        TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString())));
+    }
+}
@@ -0,0 +1,64 @@
+package dev.lydtech.dispatch.handler;
+
+import dev.lydtech.dispatch.client.StockLatencyTracker;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.util.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlowLaneRouterTest {
+
+    private KafkaTemplate<String, Object> kafkaTemplateMock;
+    private StockLatencyTracker latencyTrackerMock;
+    private SimpleMeterRegistry meterRegistry;
+    private SlowLaneRouter router;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplateMock = mock(KafkaTemplate.class);
+        latencyTrackerMock = mock(StockLatencyTracker.class);
+        meterRegistry = new SimpleMeterRegistry();
+        router = new SlowLaneRouter(kafkaTemplateMock, latencyTrackerMock, new HotPathLog(0, Duration.ZERO), meterRegistry);
+    }
+
+    @Test
+    void reroute_SendsOrdersOfSlowItemsToTheSlowLane() throws Exception {
+        String key = randomUUID().toString();
+        OrderCreated order = TestEventData.buildOrderCreatedEvent(randomUUID(), "slow-item");
+        when(latencyTrackerMock.isSlow("slow-item")).thenReturn(true);
+        when(kafkaTemplateMock.send(SlowLaneRouter.SLOW_LANE_TOPIC, key, order))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        assertThat(router.reroute(key, order)).isTrue();
+
+        verify(kafkaTemplateMock).send(SlowLaneRouter.SLOW_LANE_TOPIC, key, order);
+        assertThat(meterRegistry.get("dispatch.slow-lane.rerouted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void reroute_LeavesOrdersOfFastItems() throws Exception {
+        OrderCreated order = TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item");
+
+        assertThat(router.reroute(randomUUID().toString(), order)).isFalse();
+
+        verify(kafkaTemplateMock, never()).send(anyString(), anyString(), any());
+        assertThat(meterRegistry.get("dispatch.slow-lane.rerouted").counter().count()).isZero();
+    }
+}
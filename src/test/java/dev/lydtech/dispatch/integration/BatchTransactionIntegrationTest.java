@@ -0,0 +1,142 @@
+package dev.lydtech.dispatch.integration;
+
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.util.TestEventData;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static dev.lydtech.dispatch.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * The batch engine with transactions, where a failed batch is rolled back and redelivered as a whole
+ */
+@Slf4j
+@SpringBootTest(classes = {DispatchConfiguration.class, BatchTransactionIntegrationTest.TestConfig.class}, properties = {
+        "dispatch.engine=batch",
+        "dispatch.transactions.enabled=true",
+        "dispatch.batch.max-attempts=3"
+})
+@AutoConfigureWireMock(port = 0)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@EmbeddedKafka(controlledShutdown = true, brokerProperties = {
+        "transaction.state.log.replication.factor=1",
+        "transaction.state.log.min.isr=1"
+})
+public class BatchTransactionIntegrationTest {
+
+    private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+    private static final String ORDER_CREATED_TOPIC = "order.created";
+    private static final String ORDER_CREATED_DLQ_TOPIC = "order.created.DLT";
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private KafkaTestListener testListener;
+
+    /**
+     * Not a @Configuration, so that the component scan of DispatchConfiguration leaves it out of the other tests
+     */
+    static class TestConfig {
+        @Bean
+        public KafkaTestListener batchTransactionTestListener() {
+            return new KafkaTestListener();
+        }
+    }
+
+    @KafkaListener(groupId = "BatchTransactionIntegrationTest", topics = {ORDER_DISPATCHED_TOPIC, ORDER_CREATED_DLQ_TOPIC},
+            properties = "isolation.level=read_committed")
+    public static class KafkaTestListener {
+        AtomicInteger orderDispatchedCounter = new AtomicInteger(0);
+        AtomicInteger orderCreatedDLQCounter = new AtomicInteger(0);
+
+        @KafkaHandler
+        void receiveOrderDispatched(@Header(KafkaHeaders.RECEIVED_KEY) String key, @Payload OrderDispached payload) {
+            log.info("Receiving OrderDispatched Event: key: {} - payload: {}", key, payload);
+            orderDispatchedCounter.incrementAndGet();
+        }
+
+        @KafkaHandler
+        void receiveOrderCreatedDLQ(@Header(KafkaHeaders.RECEIVED_KEY) String key, @Payload OrderCreated payload) {
+            log.info("Receiving OrderCreated DLQ Event: key: {} - payload: {}", key, payload);
+            orderCreatedDLQCounter.incrementAndGet();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        testListener.orderDispatchedCounter.set(0);
+        testListener.orderCreatedDLQCounter.set(0);
+
+        WiremockUtils.reset();
+
+        registry.getListenerContainers().forEach(container ->
+                ContainerTestUtils.waitForAssignment(container,
+                        container.getContainerProperties().getTopics().length * embeddedKafkaBroker.getPartitionsPerTopic()));
+    }
+
+    /**
+     * The order behind the failing one on the same partition is only dispatched once the failing one is dead-lettered
+     */
+    @Test
+    @SneakyThrows
+    public void testRetryableFailure_DeadLetteredAfterMaxAttemptsAndPartitionMovesOn() {
+        stubWiremock("/api/stock?item=failing-item", 503, "service unavailable");
+        stubWiremock("/api/stock?item=good-item", 200, "true");
+        String key = randomUUID().toString();
+
+        kafkaTemplate.executeInTransaction(template -> {
+            template.send(ORDER_CREATED_TOPIC, key, TestEventData.buildOrderCreatedEvent(randomUUID(), "failing-item"));
+            template.send(ORDER_CREATED_TOPIC, key, TestEventData.buildOrderCreatedEvent(randomUUID(), "good-item"));
+            return null;
+        });
+
+        await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+                .until(testListener.orderCreatedDLQCounter::get, equalTo(1));
+        await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+                .until(testListener.orderDispatchedCounter::get, equalTo(1));
+
+        verify(exactly(3), getRequestedFor(urlEqualTo("/api/stock?item=failing-item")));
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(testListener.orderCreatedDLQCounter.get()).isEqualTo(1);
+        assertThat(testListener.orderDispatchedCounter.get()).isEqualTo(1);
+    }
+}
@@ -32,6 +32,10 @@ import org.springframework.test.context.ActiveProfiles;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static dev.lydtech.dispatch.integration.WiremockUtils.stubWiremock;
 import static java.util.UUID.randomUUID;
@@ -178,6 +182,9 @@ public class OrderDispatchIntegrationTest {
         await().atMost(3, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
                 .until(testListener.orderCreatedDLQCounter::get, equalTo(1));
 
+        // not retried: the blocking backoff would have called the stock service again within 300ms
+        TimeUnit.MILLISECONDS.sleep(500);
+        verify(exactly(1), getRequestedFor(urlEqualTo("/api/stock?item=test-item")));
         assertThat(testListener.dispatchPreparingCounter.get()).isEqualTo(0);
         assertThat(testListener.orderDispatchedCounter.get()).isEqualTo(0);
         assertThat(testListener.dispatchCompletedCounter.get()).isEqualTo(0);
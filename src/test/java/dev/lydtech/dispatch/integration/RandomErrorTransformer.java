@@ -0,0 +1,42 @@
+package dev.lydtech.dispatch.integration;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns a random share of the responses of the stubs using it into errors, given by the errorRate and errorStatus
+ * transformer parameters. Must be registered as an extension of the WireMock server.
+ */
+public class RandomErrorTransformer extends ResponseDefinitionTransformer {
+
+    public static final String NAME = "random-error";
+
+    @Override
+    public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files,
+                                        Parameters parameters) {
+        double errorRate = ((Number) parameters.get("errorRate")).doubleValue();
+        if (ThreadLocalRandom.current().nextDouble() >= errorRate) {
+            return responseDefinition;
+        }
+        return ResponseDefinitionBuilder.like(responseDefinition).but()
+                .withStatus(((Number) parameters.get("errorStatus")).intValue())
+                .withBody("injected error")
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+}
@@ -0,0 +1,165 @@
+package dev.lydtech.dispatch.integration;
+
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.util.TestEventData;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static dev.lydtech.dispatch.integration.WiremockUtils.stubWiremock;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * The record engine with dispatch.retry.mode=topics, where retryable failures are retried through
+ * order.created-retry-N and everything else goes straight to order.created.DLT
+ */
+@Slf4j
+@SpringBootTest(classes = {DispatchConfiguration.class, RetryTopicsIntegrationTest.TestConfig.class}, properties = {
+        "dispatch.retry.mode=topics",
+        "dispatch.retry.topics.attempts=3",
+        "dispatch.retry.topics.initial-interval=100ms",
+        "dispatch.retry.topics.max-interval=500ms",
+        "dispatch.retry.topics.partitions=2"
+})
+@AutoConfigureWireMock(port = 0)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@EmbeddedKafka(controlledShutdown = true)
+public class RetryTopicsIntegrationTest {
+
+    private static final String ORDER_DISPATCHED_TOPIC = "order.dispatched";
+    private static final String ORDER_CREATED_TOPIC = "order.created";
+    private static final String ORDER_CREATED_DLQ_TOPIC = "order.created.DLT";
+    private static final String STOCK_QUERY = "/api/stock?item=test-item";
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private KafkaTestListener testListener;
+
+    /**
+     * Not a @Configuration, so that the component scan of DispatchConfiguration leaves it out of the other tests
+     */
+    static class TestConfig {
+        @Bean
+        public KafkaTestListener retryTopicsTestListener() {
+            return new KafkaTestListener();
+        }
+    }
+
+    @KafkaListener(groupId = "RetryTopicsIntegrationTest", topics = {ORDER_DISPATCHED_TOPIC, ORDER_CREATED_DLQ_TOPIC})
+    public static class KafkaTestListener {
+        AtomicInteger orderDispatchedCounter = new AtomicInteger(0);
+        AtomicInteger orderCreatedDLQCounter = new AtomicInteger(0);
+
+        @KafkaHandler
+        void receiveOrderDispatched(@Header(KafkaHeaders.RECEIVED_KEY) String key, @Payload OrderDispached payload) {
+            log.info("Receiving OrderDispatched Event: key: {} - payload: {}", key, payload);
+            orderDispatchedCounter.incrementAndGet();
+        }
+
+        @KafkaHandler
+        void receiveOrderCreatedDLQ(@Header(KafkaHeaders.RECEIVED_KEY) String key, @Payload OrderCreated payload) {
+            log.info("Receiving OrderCreated DLQ Event: key: {} - payload: {}", key, payload);
+            orderCreatedDLQCounter.incrementAndGet();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        testListener.orderDispatchedCounter.set(0);
+        testListener.orderCreatedDLQCounter.set(0);
+
+        WiremockUtils.reset();
+
+        registry.getListenerContainers().forEach(container ->
+                ContainerTestUtils.waitForAssignment(container,
+                        container.getContainerProperties().getTopics().length * embeddedKafkaBroker.getPartitionsPerTopic()));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRetryableException_RetriedFromRetryTopicThenDispatched() {
+        stubWiremock(STOCK_QUERY, 503, "service unavailable", "failOne", STARTED, "succeedNextTime");
+        stubWiremock(STOCK_QUERY, 200, "true", "failOne", "succeedNextTime", "succeedNextTime");
+
+        kafkaTemplate.send(ORDER_CREATED_TOPIC, randomUUID().toString(),
+                TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item")).get();
+
+        await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+                .until(testListener.orderDispatchedCounter::get, equalTo(1));
+
+        verify(exactly(2), getRequestedFor(urlEqualTo(STOCK_QUERY)));
+        assertThat(testListener.orderCreatedDLQCounter.get()).isEqualTo(0);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRetryableException_DeadLetteredOnceOutOfAttempts() {
+        stubWiremock(STOCK_QUERY, 503, "service unavailable");
+
+        kafkaTemplate.send(ORDER_CREATED_TOPIC, randomUUID().toString(),
+                TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item")).get();
+
+        await().atMost(10, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+                .until(testListener.orderCreatedDLQCounter::get, equalTo(1));
+
+        verify(exactly(3), getRequestedFor(urlEqualTo(STOCK_QUERY)));
+        assertThat(testListener.orderDispatchedCounter.get()).isEqualTo(0);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testNotRetryableException_DeadLetteredWithoutRetries() {
+        stubWiremock(STOCK_QUERY, 400, "Bad Request");
+
+        kafkaTemplate.send(ORDER_CREATED_TOPIC, randomUUID().toString(),
+                TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item")).get();
+
+        await().atMost(5, TimeUnit.SECONDS).pollDelay(100, TimeUnit.MILLISECONDS)
+                .until(testListener.orderCreatedDLQCounter::get, equalTo(1));
+
+        // past the first retry topic's backoff, so a retry would have shown by now
+        TimeUnit.MILLISECONDS.sleep(500);
+        verify(exactly(1), getRequestedFor(urlEqualTo(STOCK_QUERY)));
+        assertThat(testListener.orderCreatedDLQCounter.get()).isEqualTo(1);
+        assertThat(testListener.orderDispatchedCounter.get()).isEqualTo(0);
+    }
+}
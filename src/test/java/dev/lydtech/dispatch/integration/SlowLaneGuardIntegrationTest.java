@@ -0,0 +1,75 @@
+package dev.lydtech.dispatch.integration;
+
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import dev.lydtech.dispatch.service.DispatchService;
+import dev.lydtech.dispatch.util.TestEventData;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The slow lane's lookups, slower than the guard's latency threshold, leave the guard of the fast lane alone
+ */
+@SpringBootTest(classes = DispatchConfiguration.class, properties = {
+        "dispatch.slow-lane.enabled=true",
+        "dispatch.stock.guard.enabled=true",
+        "dispatch.stock.guard.initial-limit=20",
+        "dispatch.stock.guard.latency-threshold=50ms",
+        "dispatch.stock.guard.sliding-window-size=5",
+        "dispatch.stock.guard.minimum-calls=5"
+})
+@AutoConfigureWireMock(port = 0)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@EmbeddedKafka(controlledShutdown = true)
+public class SlowLaneGuardIntegrationTest {
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    @Qualifier("slowLaneDispatchService")
+    private DispatchService slowLaneDispatchService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        WiremockUtils.reset();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testSlowLaneLookups_LeaveTheFastLaneGuardUnchanged() {
+        stubFor(get(urlEqualTo("/api/stock?item=slow-item"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-type", "text/plain").withBody("true")
+                        .withFixedDelay(200)));
+        WiremockUtils.stubWiremock("/api/stock?item=fast-item", 200, "true");
+
+        for (int i = 0; i < 6; i++) {
+            slowLaneDispatchService.process(randomUUID().toString(),
+                    TestEventData.buildOrderCreatedEvent(randomUUID(), "slow-item"));
+        }
+
+        assertThat(meterRegistry.get("dispatch.stock.concurrency.limit").gauge().value()).isEqualTo(20.0);
+        assertThat(meterRegistry.get("dispatch.stock.circuit-breaker.state").gauge().value()).isZero();
+        dispatchService.process(randomUUID().toString(), TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item"));
+        assertThat(meterRegistry.get("dispatch.stock.rejected").tag("reason", "open").counter().count()).isZero();
+    }
+}
@@ -0,0 +1,183 @@
+package dev.lydtech.dispatch.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import dev.lydtech.dispatch.client.StockAvailabilityBatcher;
+import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.exception.RetryableException;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static dev.lydtech.dispatch.integration.WiremockUtils.stubBulkWiremock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StockServiceBulkIntegrationTest {
+
+    private static WireMockServer wireMockServer;
+
+    private StockServiceClient client;
+
+    private StockAvailabilityBatcher batcher;
+
+    @BeforeAll
+    public static void startWiremock() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        WireMock.configureFor("localhost", wireMockServer.port());
+    }
+
+    @AfterAll
+    public static void stopWiremock() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        WiremockUtils.reset();
+        client = new StockServiceClient(new RestTemplate(), "http://localhost:" + wireMockServer.port() + "/api/stock");
+        batcher = new StockAvailabilityBatcher(client::checkAvailable, Duration.ofMillis(50), 3, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    public void testCheckAvailableBulk_Success() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2", 200, "{\"item-1\": \"true\", \"item-2\": \"false\"}");
+
+        Map<String, String> availability = client.checkAvailable(List.of("item-1", "item-2"));
+
+        assertThat(availability).containsExactlyInAnyOrderEntriesOf(Map.of("item-1", "true", "item-2", "false"));
+    }
+
+    @Test
+    public void testCheckAvailableBulk_ItemsAreEncoded() {
+        stubBulkWiremock("/api/stock/bulk?items=item%2C1&items=item%261&items=item%2B1", 200,
+                "{\"item,1\": \"true\", \"item&1\": \"false\", \"item+1\": \"true\"}");
+
+        Map<String, String> availability = client.checkAvailable(List.of("item,1", "item&1", "item+1"));
+
+        assertThat(availability).containsExactlyInAnyOrderEntriesOf(
+                Map.of("item,1", "true", "item&1", "false", "item+1", "true"));
+    }
+
+    @Test
+    public void testCheckAvailableBulk_ServerError() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2", 503, "service unavailable");
+
+        assertThrows(RetryableException.class, () -> client.checkAvailable(List.of("item-1", "item-2")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_LookupsWithinWindowShareOneRequest() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2", 200, "{\"item-1\": \"true\", \"item-2\": \"false\"}");
+
+        CompletableFuture<String> first = batcher.checkAvailable("item-1");
+        CompletableFuture<String> second = batcher.checkAvailable("item-2");
+        CompletableFuture<String> duplicate = batcher.checkAvailable("item-1");
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("false");
+        assertThat(duplicate.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+        verify(1, getRequestedFor(urlPathEqualTo("/api/stock/bulk")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_FlushesWhenMaxItemsReached() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2&items=item-3", 200,
+                "{\"item-1\": \"true\", \"item-2\": \"true\", \"item-3\": \"true\"}");
+        batcher.close();
+        batcher = new StockAvailabilityBatcher(client::checkAvailable, Duration.ofMinutes(1), 3, 2);
+
+        CompletableFuture<String> first = batcher.checkAvailable("item-1");
+        CompletableFuture<String> second = batcher.checkAvailable("item-2");
+        CompletableFuture<String> third = batcher.checkAvailable("item-3");
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+        assertThat(third.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_PartialFailure() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2", 200, "{\"item-1\": \"true\"}");
+
+        CompletableFuture<String> known = batcher.checkAvailable("item-1");
+        CompletableFuture<String> unknown = batcher.checkAvailable("item-2");
+
+        assertThat(known.get(1, TimeUnit.SECONDS)).isEqualTo("true");
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> unknown.get(1, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+        assertThat(exception.getCause().getMessage()).isEqualTo("No availability returned for item item-2");
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_BulkFailureFailsEveryItem() {
+        stubBulkWiremock("/api/stock/bulk?items=item-1&items=item-2", 503, "service unavailable");
+
+        CompletableFuture<String> first = batcher.checkAvailable("item-1");
+        CompletableFuture<String> second = batcher.checkAvailable("item-2");
+
+        ExecutionException firstException = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        ExecutionException secondException = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertThat(firstException.getCause()).isInstanceOf(RetryableException.class);
+        assertThat(secondException.getCause()).isInstanceOf(RetryableException.class);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_CloseFailsLookupsNotYetAnswered() {
+        stubFor(get(urlEqualTo("/api/stock/bulk?items=item-1"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-type", "application/json")
+                        .withBody("{\"item-1\": \"true\"}").withFixedDelay(300)));
+        batcher.close();
+        // one bulk lookup at a time, so the second batch waits for the first one's thread
+        batcher = new StockAvailabilityBatcher(client::checkAvailable, Duration.ofMinutes(1), 1, 1);
+
+        CompletableFuture<String> running = batcher.checkAvailable("item-1");
+        CompletableFuture<String> queued = batcher.checkAvailable("item-2");
+        batcher.close();
+
+        ExecutionException queuedException = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertThat(queuedException.getCause()).isInstanceOf(RetryableException.class)
+                .hasMessage("Stock availability batcher is closed");
+        ExecutionException closedException = assertThrows(ExecutionException.class,
+                () -> batcher.checkAvailable("item-3").get(1, TimeUnit.SECONDS));
+        assertThat(closedException.getCause()).isInstanceOf(RetryableException.class);
+        running.handle((available, e) -> null).get(1, TimeUnit.SECONDS);
+        verify(0, getRequestedFor(urlEqualTo("/api/stock/bulk?items=item-2")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatcher_CloseFailsLookupsWaitingForTheWindow() {
+        CompletableFuture<String> waiting = batcher.checkAvailable("item-1");
+
+        batcher.close();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> waiting.get(1, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+        verify(0, getRequestedFor(urlPathEqualTo("/api/stock/bulk")));
+    }
+}
@@ -1,6 +1,8 @@
 package dev.lydtech.dispatch.integration;
 
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.DelayDistribution;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
@@ -33,4 +35,32 @@ public class WiremockUtils {
                             .withBody(body)));
         }
     }
+
+    /**
+     * The body is a JSON object with the availability of each item, leave items out to simulate a partial failure
+     */
+    public static void stubBulkWiremock(String url, int httpStatusResponse, String body) {
+        stubFor(get(urlEqualTo(url))
+                .willReturn(aResponse().withStatus(httpStatusResponse)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(body)));
+    }
+
+    /**
+     * Stubs every request to the url path with a random latency, null for none, and fails errorRate of them with
+     * errorStatus. Needs the RandomErrorTransformer extension on the WireMock server.
+     */
+    public static void stubWiremockUnderLoad(String urlPath, String body, DelayDistribution latency,
+                                             double errorRate, int errorStatus) {
+        ResponseDefinitionBuilder response = aResponse().withStatus(200)
+                .withHeader("Content-type", "text/plain")
+                .withBody(body)
+                .withTransformers(RandomErrorTransformer.NAME)
+                .withTransformerParameter("errorRate", errorRate)
+                .withTransformerParameter("errorStatus", errorStatus);
+        if (latency != null) {
+            response.withRandomDelay(latency);
+        }
+        stubFor(get(urlPathEqualTo(urlPath)).willReturn(response));
+    }
 }
@@ -0,0 +1,65 @@
+package dev.lydtech.dispatch.jfr;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.util.TestEventData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class SlowOrderMonitorTest {
+
+    private final List<SlowOrderMonitor.SlowOrder> reported = new CopyOnWriteArrayList<>();
+
+    private SlowOrderMonitor monitor;
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void reportsSlowOrdersWithTheirSlowStagesAndGcPauses() throws Exception {
+        monitor = new SlowOrderMonitor(Duration.ofMillis(50), Duration.ofMillis(20), reported::add);
+        OrderCreated slowOrder = TestEventData.buildOrderCreatedEvent(randomUUID(), "slow-item");
+        OrderCreated fastOrder = TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item");
+
+        OrderListenerEvent listener = new OrderListenerEvent();
+        listener.begin();
+        StockCheckEvent stockCheck = new StockCheckEvent();
+        stockCheck.begin();
+        Thread.sleep(30);
+        stockCheck.end(3, slowOrder, "available");
+        DispatchSendEvent fastSend = new DispatchSendEvent("dispatch.tracking", "message");
+        fastSend.begin();
+        fastSend.end(3, slowOrder, "success");
+        System.gc();
+        Thread.sleep(30);
+        listener.end(3, slowOrder, "success");
+
+        OrderListenerEvent fastListener = new OrderListenerEvent();
+        fastListener.begin();
+        fastListener.end(4, fastOrder, "success");
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> !reported.isEmpty());
+        Thread.sleep(1500);
+
+        assertThat(reported).hasSize(1);
+        SlowOrderMonitor.SlowOrder reportedOrder = reported.get(0);
+        assertThat(reportedOrder.orderId()).isEqualTo(slowOrder.getOrderId().toString());
+        assertThat(reportedOrder.partition()).isEqualTo(3);
+        assertThat(reportedOrder.item()).isEqualTo("slow-item");
+        assertThat(reportedOrder.result()).isEqualTo("success");
+        assertThat(reportedOrder.duration()).isGreaterThanOrEqualTo(Duration.ofMillis(60));
+        assertThat(reportedOrder.stockChecks()).isGreaterThanOrEqualTo(Duration.ofMillis(30));
+        assertThat(reportedOrder.sends()).isZero();
+        assertThat(reportedOrder.gcPauses()).isPositive();
+    }
+}
@@ -0,0 +1,209 @@
+package dev.lydtech.dispatch.load;
+
+import com.github.tomakehurst.wiremock.http.DelayDistribution;
+import com.github.tomakehurst.wiremock.http.LogNormal;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+import dev.lydtech.dispatch.config.DispatchConfiguration;
+import dev.lydtech.dispatch.integration.RandomErrorTransformer;
+import dev.lydtech.dispatch.integration.WiremockUtils;
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.util.TestEventData;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.cloud.contract.wiremock.WireMockConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Drives load.orders OrderCreated records at load.rate orders per second (0 for as fast as possible) through the
+ * whole application, with order.created and the other topics on load.partitions partitions, and a stock service
+ * answering with a log-normal latency of load.latency-median-ms and load.latency-sigma (a uniform latency between
+ * 0 and twice the median with load.latency=uniform) and failing load.error-rate of the calls with a 503.
+ *
+ * Reports the sustained throughput and the p50/p99/p999 latency from the intended send time of an order to its
+ * DispatchCompleted, so that a slow producer does not hide queueing delay. Orders dead-lettered after their
+ * retries are counted apart.
+ *
+ * Run with: mvn test -Pload [-Dload.orders=5000] [-Dload.rate=500] [-Dload.partitions=6]
+ * [-Dload.latency-median-ms=5] [-Dload.latency-sigma=0.5] [-Dload.latency=lognormal] [-Dload.error-rate=0.01]
+ * [-Dload.timeout-s=300] and any dispatch.* property, e.g. -Ddispatch.engine=parallel -Ddispatch.listener.concurrency=6
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(classes = {DispatchConfiguration.class, OrderDispatchLoadTest.LoadTestConfig.class},
+        properties = {"logging.level.dev.lydtech.dispatch=WARN", "logging.level.dev.lydtech.dispatch.load=INFO"})
+@AutoConfigureWireMock(port = 0)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+@EmbeddedKafka(controlledShutdown = true, brokerProperties = "num.partitions=${load.partitions:6}")
+public class OrderDispatchLoadTest {
+
+    private static final String ORDER_CREATED_TOPIC = "order.created";
+    private static final String DISPATCH_TRACKING_TOPIC = "dispatch.tracking";
+    private static final String ORDER_CREATED_DLQ_TOPIC = "order.created.DLT";
+
+    private static final int ORDERS = Integer.getInteger("load.orders", 5000);
+    private static final int RATE = Integer.getInteger("load.rate", 500);
+    private static final int PARTITIONS = Integer.getInteger("load.partitions", 6);
+    private static final String LATENCY = System.getProperty("load.latency", "lognormal");
+    private static final double LATENCY_MEDIAN_MS = Double.parseDouble(System.getProperty("load.latency-median-ms", "5"));
+    private static final double LATENCY_SIGMA = Double.parseDouble(System.getProperty("load.latency-sigma", "0.5"));
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("load.error-rate", "0"));
+    private static final int TIMEOUT_SECONDS = Integer.getInteger("load.timeout-s", 300);
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private LoadTestListener loadTestListener;
+
+    /**
+     * Not a @Configuration, so that the component scan of DispatchConfiguration leaves it out of the other tests
+     */
+    static class LoadTestConfig {
+        @Bean
+        public LoadTestListener loadTestListener() {
+            return new LoadTestListener();
+        }
+
+        @Bean
+        public WireMockConfigurationCustomizer randomErrors() {
+            return options -> options.extensions(new RandomErrorTransformer()).disableRequestJournal();
+        }
+    }
+
+    @KafkaListener(groupId = "OrderDispatchLoadTest", topics = {DISPATCH_TRACKING_TOPIC, ORDER_CREATED_DLQ_TOPIC})
+    static class LoadTestListener {
+        final Map<UUID, Long> intendedSendTimes = new ConcurrentHashMap<>();
+        final AtomicLongArray latencies = new AtomicLongArray(ORDERS);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger deadLettered = new AtomicInteger();
+        final AtomicLong lastCompletion = new AtomicLong();
+
+        @KafkaHandler
+        void receiveDispatchCompleted(@Payload DispatchCompleted payload) {
+            complete(payload.getOrderId());
+        }
+
+        /**
+         * With dispatch.tracking.mode=coalesced the single DispatchTracked event stands for the DispatchCompleted
+         */
+        @KafkaHandler
+        void receiveDispatchTracked(@Payload DispatchTracked payload) {
+            complete(payload.getOrderId());
+        }
+
+        private void complete(UUID orderId) {
+            Long intendedSendTime = intendedSendTimes.remove(orderId);
+            if (intendedSendTime != null) {
+                long now = System.nanoTime();
+                latencies.set(completed.getAndIncrement(), now - intendedSendTime);
+                lastCompletion.accumulateAndGet(now, Math::max);
+            }
+        }
+
+        @KafkaHandler
+        void receiveOrderCreatedDLQ(@Payload OrderCreated payload) {
+            if (intendedSendTimes.remove(payload.getOrderId()) != null) {
+                deadLettered.incrementAndGet();
+            }
+        }
+
+        @KafkaHandler(isDefault = true)
+        void receiveOther(Object payload) {
+        }
+    }
+
+    @Test
+    public void sustainedLoad() {
+        WiremockUtils.reset();
+        WiremockUtils.stubWiremockUnderLoad("/api/stock", "true", latency(), ERROR_RATE, 503);
+        registry.getListenerContainers().forEach(container ->
+                ContainerTestUtils.waitForAssignment(container, container.getContainerProperties().getTopics().length * PARTITIONS));
+
+        long intervalNanos = RATE > 0 ? TimeUnit.SECONDS.toNanos(1) / RATE : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            long intendedSendTime = start + i * intervalNanos;
+            long wait;
+            while ((wait = intendedSendTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "load-item-" + i % 1000);
+            loadTestListener.intendedSendTimes.put(orderCreated.getOrderId(), intendedSendTime);
+            kafkaTemplate.send(ORDER_CREATED_TOPIC, randomUUID().toString(), orderCreated);
+        }
+        double sendSeconds = (System.nanoTime() - start) / 1e9;
+
+        await().atMost(TIMEOUT_SECONDS, TimeUnit.SECONDS).pollInterval(100, TimeUnit.MILLISECONDS)
+                .until(() -> loadTestListener.completed.get() + loadTestListener.deadLettered.get() == ORDERS);
+
+        int completed = loadTestListener.completed.get();
+        long[] latencies = new long[completed];
+        for (int i = 0; i < completed; i++) {
+            latencies[i] = loadTestListener.latencies.get(i);
+        }
+        Arrays.sort(latencies);
+        double seconds = (loadTestListener.lastCompletion.get() - start) / 1e9;
+
+        log.info("{} orders at {} orders/s offered ({} s to send), {} partitions, {} latency median {} ms sigma {}, error rate {}",
+                ORDERS, RATE > 0 ? RATE : "max", String.format("%.1f", sendSeconds), PARTITIONS, LATENCY,
+                LATENCY_MEDIAN_MS, LATENCY_SIGMA, ERROR_RATE);
+        log.info(String.format("  completed %d, dead-lettered %d, sustained throughput %.0f orders/s",
+                completed, loadTestListener.deadLettered.get(), completed / seconds));
+        log.info(String.format("  order to DispatchCompleted: p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, max %.1f ms",
+                percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99),
+                percentileMillis(latencies, 0.999), percentileMillis(latencies, 1.0)));
+
+        assertThat(completed).isPositive();
+    }
+
+    private static DelayDistribution latency() {
+        if (LATENCY_MEDIAN_MS <= 0) {
+            return null;
+        }
+        if ("uniform".equals(LATENCY)) {
+            return new UniformDistribution(0, (int) (2 * LATENCY_MEDIAN_MS));
+        }
+        return new LogNormal(LATENCY_MEDIAN_MS, LATENCY_SIGMA);
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return Double.NaN;
+        }
+        int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+        return sortedLatencies[index] / 1e6;
+    }
+}
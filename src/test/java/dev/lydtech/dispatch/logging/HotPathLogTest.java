@@ -0,0 +1,80 @@
+package dev.lydtech.dispatch.logging;
+
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class HotPathLogTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    void log_DebugEnabledLogsEveryMessageAtDebug() {
+        HotPathLog hotPathLog = new HotPathLog(1, Duration.ofSeconds(30), nanoClock::get);
+        Logger logger = mock(Logger.class);
+        when(logger.isDebugEnabled()).thenReturn(true);
+
+        hotPathLog.log(logger, "message {}", "one");
+        hotPathLog.log(logger, "message {}", "two");
+
+        verify(logger).debug("message {}", "one");
+        verify(logger).debug("message {}", "two");
+        verify(logger, never()).info(anyString(), any(Object.class));
+    }
+
+    @Test
+    void log_DebugDisabledSamplesAtInfo() {
+        HotPathLog hotPathLog = new HotPathLog(2, Duration.ofSeconds(30), nanoClock::get);
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+
+        hotPathLog.log(logger, "message {}", "one");
+        hotPathLog.log(logger, "message {}", "two");
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(499));
+        hotPathLog.log(logger, "message {}", "three");
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        hotPathLog.log(logger, "message {}", "four");
+
+        verify(logger).info("message {}", "one");
+        verify(logger).info("message {}", "four");
+        verify(logger, times(2)).info(anyString(), any(Object.class));
+        verify(logger, never()).debug(anyString(), any(Object.class));
+    }
+
+    @Test
+    void log_NoSamplingLogsNothingAtInfo() {
+        HotPathLog hotPathLog = new HotPathLog(0, Duration.ofSeconds(30), nanoClock::get);
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+
+        hotPathLog.log(logger, "message {} {} {}", "one", "two", "three");
+
+        verify(logger, never()).info(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void summary_CountsOutcomesPerPartitionAndResets() {
+        HotPathLog hotPathLog = new HotPathLog(1, Duration.ofSeconds(30), nanoClock::get);
+
+        hotPathLog.outcome(1, Outcome.DISPATCHED);
+        hotPathLog.outcome(1, Outcome.DISPATCHED);
+        hotPathLog.outcome(1, Outcome.FAILED);
+        hotPathLog.outcome(0, Outcome.UNAVAILABLE);
+        hotPathLog.outcome(0, Outcome.RETRYABLE);
+
+        assertThat(hotPathLog.summary()).isEqualTo("Orders in the last 30s"
+                + " - partition 0: dispatched 0, unavailable 1, duplicate 0, retryable 1, failed 0"
+                + " - partition 1: dispatched 2, unavailable 0, duplicate 0, retryable 0, failed 1");
+        assertThat(hotPathLog.summary()).isNull();
+
+        hotPathLog.outcome(1, Outcome.DISPATCHED);
+        assertThat(hotPathLog.summary()).isEqualTo("Orders in the last 30s - partition 1: dispatched 1, unavailable 0, duplicate 0, retryable 0, failed 0");
+    }
+}
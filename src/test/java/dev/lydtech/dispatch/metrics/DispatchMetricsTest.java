@@ -0,0 +1,142 @@
+package dev.lydtech.dispatch.metrics;
+
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.OrderCreated;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DispatchMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DispatchMetrics dispatchMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatchMetrics = new DispatchMetrics(meterRegistry);
+    }
+
+    @Test
+    void producerListener_TimesDispatchEventsFromTheStartOfTheSend() throws InterruptedException {
+        ProducerListener<String, Object> listener = dispatchMetrics.producerListener();
+        TimedProducerRecord<String, Object> record = new TimedProducerRecord<>("dispatch.tracking", "key",
+                new DispatchPreparing(randomUUID()));
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        listener.onSuccess(record, metadata("dispatch.tracking", 0));
+
+        Timer preparing = meterRegistry.get("dispatch.send").tag("event", "dispatch-preparing").timer();
+        assertThat(preparing.count()).isEqualTo(1);
+        assertThat(preparing.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(5);
+        assertThat(meterRegistry.get("dispatch.send").tag("event", "order-dispatched").timer().count()).isZero();
+    }
+
+    @Test
+    void producerListener_DoesNotTimeUntimedRecords() {
+        ProducerListener<String, Object> listener = dispatchMetrics.producerListener();
+
+        listener.onSuccess(new ProducerRecord<>("dispatch.tracking", "key", new DispatchPreparing(randomUUID())),
+                metadata("dispatch.tracking", System.currentTimeMillis() - 5));
+
+        assertThat(meterRegistry.get("dispatch.send").tag("event", "dispatch-preparing").timer().count()).isZero();
+    }
+
+    @Test
+    void producerListener_CountsDeadLettersRetriesAndErrors() {
+        ProducerListener<String, Object> listener = dispatchMetrics.producerListener();
+        OrderCreated orderCreated = new OrderCreated(randomUUID(), "item");
+
+        listener.onSuccess(new ProducerRecord<>("order.created.DLT", "key", orderCreated), metadata("order.created.DLT", 0));
+        listener.onSuccess(new ProducerRecord<>("order.created-retry-0", "key", orderCreated), metadata("order.created-retry-0", 0));
+        listener.onError(new ProducerRecord<>("dispatch.tracking", "key", new DispatchPreparing(randomUUID())), null,
+                new RuntimeException("send failure"));
+
+        assertThat(meterRegistry.get("dispatch.dlt.published").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.send.errors").tag("event", "dispatch-preparing").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void countingRetries_CountsOnlyScheduledRedeliveries() {
+        BackOffExecution execution = dispatchMetrics.countingRetries(new FixedBackOff(0L, 2L)).start();
+
+        assertThat(execution.nextBackOff()).isZero();
+        assertThat(execution.nextBackOff()).isZero();
+        assertThat(execution.nextBackOff()).isEqualTo(BackOffExecution.STOP);
+
+        assertThat(meterRegistry.get("dispatch.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void inFlightInterceptor_TracksRecordsPerPartition() {
+        DispatchMetrics.InFlightInterceptor<String, Object> interceptor = dispatchMetrics.inFlightInterceptor();
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("order.created", 1, 0L, "key", "value");
+
+        interceptor.intercept(record, null);
+
+        assertThat(dispatchMetrics.inFlight("order.created", 1)).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.in-flight").tag("partition", "1").gauge().value()).isEqualTo(1.0);
+
+        interceptor.afterRecord(record, null);
+
+        assertThat(dispatchMetrics.inFlight("order.created", 1)).isZero();
+    }
+
+    @Test
+    void inFlightInterceptor_TracksBatches() {
+        DispatchMetrics.InFlightInterceptor<String, Object> interceptor = dispatchMetrics.inFlightInterceptor();
+        TopicPartition partition0 = new TopicPartition("order.created", 0);
+        TopicPartition partition2 = new TopicPartition("order.created", 2);
+        ConsumerRecords<String, Object> records = new ConsumerRecords<>(Map.of(
+                partition0, List.of(new ConsumerRecord<>("order.created", 0, 0L, "a", "1"), new ConsumerRecord<>("order.created", 0, 1L, "b", "2")),
+                partition2, List.of(new ConsumerRecord<>("order.created", 2, 7L, "c", "3"))));
+
+        interceptor.intercept(records, null);
+
+        assertThat(dispatchMetrics.inFlight("order.created", 0)).isEqualTo(2);
+        assertThat(dispatchMetrics.inFlight("order.created", 2)).isEqualTo(1);
+
+        interceptor.failure(records, new RuntimeException("failure"), null);
+
+        assertThat(dispatchMetrics.inFlight("order.created", 0)).isZero();
+        assertThat(dispatchMetrics.inFlight("order.created", 2)).isZero();
+    }
+
+    @Test
+    void deserializationErrorCounter_CountsPoisonPills() {
+        try (ErrorHandlingDeserializer<Object> deserializer = new ErrorHandlingDeserializer<>(new JsonDeserializer<>(Object.class))) {
+            deserializer.setFailedDeserializationFunction(dispatchMetrics.deserializationErrorCounter());
+
+            Object value = deserializer.deserialize("order.created", new RecordHeaders(), "not json".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(value).isNull();
+            assertThat(meterRegistry.get("dispatch.deserialization.errors").counter().count()).isEqualTo(1);
+        }
+    }
+
+    private RecordMetadata metadata(String topic, long timestamp) {
+        return new RecordMetadata(new TopicPartition(topic, 0), 0L, 0, timestamp, 0, 0);
+    }
+}
@@ -0,0 +1,230 @@
+package dev.lydtech.dispatch.reactive;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import dev.lydtech.dispatch.util.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveDispatchEngineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<ProducerRecord<String, Object>> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> acknowledged = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Mono<Boolean>> stockAnswers = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private final HotPathLog hotPathLog = mock(HotPathLog.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReactiveDispatchEngine engine;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        KafkaSender<String, Object> sender = mock(KafkaSender.class);
+        when(sender.send(any())).thenAnswer(invocation -> Flux.from((Publisher<SenderRecord<String, Object, Object>>) invocation.getArgument(0))
+                .map(record -> {
+                    sent.add(record);
+                    return result(record);
+                }));
+        Function<String, Mono<Boolean>> stockLookup = item -> {
+            lookups.incrementAndGet();
+            return stockAnswers.getOrDefault(item, Mono.just(true));
+        };
+        engine = new ReactiveDispatchEngine(null, sender, stockLookup, DispatchEvents.separate(), 16, 4, Duration.ofMillis(10),
+                new DispatchMetrics(meterRegistry), hotPathLog);
+    }
+
+    @Test
+    void dispatch_SendsTheThreeEventsAndAcknowledges() {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item");
+
+        engine.dispatch(Flux.just(record(0, 0, "key", orderCreated))).blockLast(TIMEOUT);
+
+        assertThat(sent).extracting(ProducerRecord::topic)
+                .containsExactly("dispatch.tracking", "order.dispatched", "dispatch.tracking");
+        assertThat(sent).extracting(ProducerRecord::key).containsOnly("key");
+        assertThat(sent.get(0).value()).isInstanceOf(DispatchPreparing.class);
+        assertThat(sent.get(1).value()).isInstanceOf(OrderDispached.class);
+        assertThat(sent.get(2).value()).isInstanceOf(DispatchCompleted.class);
+        assertThat(acknowledged).containsExactly(0L);
+        assertThat(meterRegistry.get("dispatch.send").tag("event", "order-dispatched").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatch_UnavailableItemSendsNothing() {
+        stockAnswers.put("test-item", Mono.just(false));
+
+        engine.dispatch(Flux.just(record(0, 0, "key", TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"))))
+                .blockLast(TIMEOUT);
+
+        assertThat(sent).isEmpty();
+        assertThat(acknowledged).containsExactly(0L);
+    }
+
+    @Test
+    void dispatch_NotRetryableExceptionIsDeadLettered() {
+        stockAnswers.put("test-item", Mono.error(new RuntimeException("error 400")));
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item");
+
+        engine.dispatch(Flux.just(record(0, 0, "key", orderCreated))).blockLast(TIMEOUT);
+
+        assertThat(lookups).hasValue(1);
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0).topic()).isEqualTo("order.created.DLT");
+        assertThat(sent.get(0).value()).isEqualTo(orderCreated);
+        assertThat(new String(sent.get(0).headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE).value()))
+                .isEqualTo("error 400");
+        assertThat(acknowledged).containsExactly(0L);
+    }
+
+    @Test
+    void dispatch_RetryableExceptionIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        stockAnswers.put("test-item", Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.error(new RetryableException("error 503")) : Mono.just(true)));
+
+        engine.dispatch(Flux.just(record(0, 0, "key", TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"))))
+                .blockLast(TIMEOUT);
+
+        assertThat(attempts).hasValue(2);
+        assertThat(sent).extracting(ProducerRecord::topic)
+                .containsExactly("dispatch.tracking", "order.dispatched", "dispatch.tracking");
+    }
+
+    @Test
+    void dispatch_RetryUntilFailureIsDeadLettered() {
+        AtomicInteger attempts = new AtomicInteger();
+        stockAnswers.put("test-item", Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new RetryableException("error 503"));
+        }));
+
+        engine.dispatch(Flux.just(record(0, 0, "key", TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"))))
+                .blockLast(TIMEOUT);
+
+        assertThat(attempts).hasValue(4);
+        assertThat(sent).extracting(ProducerRecord::topic).containsExactly("order.created.DLT");
+        assertThat(acknowledged).containsExactly(0L);
+        verify(hotPathLog).outcome(0, Outcome.FAILED);
+    }
+
+    @Test
+    void dispatch_OffsetsAreAcknowledgedInOrderAfterSlowerOrders() {
+        stockAnswers.put("slow-item", Mono.just(true).delayElement(Duration.ofMillis(200)));
+
+        engine.dispatch(Flux.just(
+                        record(0, 0, "key-1", TestEventData.buildOrderCreatedEvent(randomUUID(), "slow-item")),
+                        record(0, 1, "key-2", TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item")),
+                        record(0, 2, "key-3", TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item"))))
+                .blockLast(TIMEOUT);
+
+        assertThat(sent.get(0).key()).as("later orders are not held back by a slow one").isEqualTo("key-2");
+        assertThat(acknowledged).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    void dispatch_OrdersOfAKeyAreDispatchedOneAfterTheOther() {
+        stockAnswers.put("slow-item", Mono.just(true).delayElement(Duration.ofMillis(200)));
+        OrderCreated first = TestEventData.buildOrderCreatedEvent(randomUUID(), "slow-item");
+        OrderCreated second = TestEventData.buildOrderCreatedEvent(randomUUID(), "fast-item");
+
+        engine.dispatch(Flux.just(record(0, 0, "key", first), record(0, 1, "key", second))).blockLast(TIMEOUT);
+
+        assertThat(sent).filteredOn(record -> record.value() instanceof OrderDispached)
+                .extracting(record -> ((OrderDispached) record.value()).getOrderId())
+                .containsExactly(first.getOrderId(), second.getOrderId());
+    }
+
+    @Test
+    void dispatch_UndeserializableRecordIsDeadLettered() {
+        byte[] data = "not-json".getBytes(StandardCharsets.UTF_8);
+        ReceiverRecord<String, Object> record = record(0, 0, "key", null);
+        SerializationUtils.deserializationException(record.headers(), data,
+                new DeserializationException("failed", data, false, new RuntimeException("bad json")), false);
+
+        engine.dispatch(Flux.just(record)).blockLast(TIMEOUT);
+
+        assertThat(lookups).hasValue(0);
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0).topic()).isEqualTo("order.created.DLT");
+        assertThat(sent.get(0).value()).isEqualTo(data);
+        assertThat(new String(sent.get(0).headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN).value()))
+                .isEqualTo(DeserializationException.class.getName());
+        assertThat(acknowledged).containsExactly(0L);
+        verify(hotPathLog).outcome(0, Outcome.FAILED);
+    }
+
+    private ReceiverRecord<String, Object> record(int partition, long offset, String key, Object value) {
+        TopicPartition topicPartition = new TopicPartition("order.created", partition);
+        ReceiverOffset receiverOffset = mock(ReceiverOffset.class);
+        when(receiverOffset.topicPartition()).thenReturn(topicPartition);
+        when(receiverOffset.offset()).thenReturn(offset);
+        doAnswer(invocation -> acknowledged.add(offset)).when(receiverOffset).acknowledge();
+        return new ReceiverRecord<>(new ConsumerRecord<>("order.created", partition, offset, key, value), receiverOffset);
+    }
+
+    private static <T> SenderResult<T> result(SenderRecord<String, Object, T> record) {
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), 0, 0, System.currentTimeMillis(), 0, 0);
+        return new SenderResult<>() {
+            @Override
+            public RecordMetadata recordMetadata() {
+                return metadata;
+            }
+
+            @Override
+            public Exception exception() {
+                return null;
+            }
+
+            @Override
+            public T correlationMetadata() {
+                return record.correlationMetadata();
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package dev.lydtech.dispatch.reactive;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import dev.lydtech.dispatch.exception.RetryableException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReactiveStockClientTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private static WireMockServer wireMockServer;
+
+    private ReactiveStockClient client;
+
+    private final String STOCK_SERVICE_QUERY = "/api/stock?item=my-item";
+
+    @BeforeAll
+    static void startWiremock() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+    }
+
+    @AfterAll
+    static void stopWiremock() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer.resetAll();
+        client = new ReactiveStockClient("http://localhost:" + wireMockServer.port() + "/api/stock", 10,
+                Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void checkAvailable_Success() {
+        stub(aResponse().withStatus(200).withBody("true"));
+
+        assertThat(client.checkAvailable("my-item").block(TIMEOUT)).isTrue();
+    }
+
+    @Test
+    void checkAvailable_Unavailable() {
+        stub(aResponse().withStatus(200).withBody("false"));
+
+        assertThat(client.checkAvailable("my-item").block(TIMEOUT)).isFalse();
+    }
+
+    @Test
+    void checkAvailable_ServerError() {
+        stub(aResponse().withStatus(503).withBody("service unavailable"));
+
+        RetryableException exception = assertThrows(RetryableException.class, () -> client.checkAvailable("my-item").block(TIMEOUT));
+        assertThat(exception.getMessage()).isEqualTo("error 503");
+    }
+
+    @Test
+    void checkAvailable_Timeout() {
+        stub(aResponse().withStatus(200).withBody("true").withFixedDelay(3000));
+
+        assertThrows(RetryableException.class, () -> client.checkAvailable("my-item").block(TIMEOUT));
+    }
+
+    @Test
+    void checkAvailable_ClientError() {
+        stub(aResponse().withStatus(400).withBody("Bad Request"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> client.checkAvailable("my-item").block(TIMEOUT));
+        assertThat(exception).isNotInstanceOf(RetryableException.class);
+        assertThat(exception.getMessage()).isEqualTo("error 400");
+    }
+
+    private void stub(ResponseDefinitionBuilder response) {
+        wireMockServer.stubFor(get(urlEqualTo(STOCK_SERVICE_QUERY)).willReturn(response));
+    }
+}
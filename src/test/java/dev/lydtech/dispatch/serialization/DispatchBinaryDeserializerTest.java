@@ -0,0 +1,94 @@
+package dev.lydtech.dispatch.serialization;
+
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.util.TestEventData;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DispatchBinaryDeserializerTest {
+
+    private static final String TOPIC = "order.created";
+
+    private ErrorHandlingDeserializer<Object> deserializer;
+
+    @BeforeEach
+    void setUp() {
+        deserializer = new ErrorHandlingDeserializer<>();
+        deserializer.configure(Map.of(
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, DispatchBinaryDeserializer.class,
+                JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deserializer.close();
+    }
+
+    @Test
+    void deserialize_BinaryValue() {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+
+        Object value = deserializer.deserialize(TOPIC, new RecordHeaders(), new DispatchBinarySerializer().serialize(TOPIC, orderCreated));
+
+        assertThat(value).isEqualTo(orderCreated);
+    }
+
+    @Test
+    void deserialize_JsonValue() {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+        byte[] json;
+        try (JsonSerializer<Object> jsonSerializer = new JsonSerializer<>()) {
+            json = jsonSerializer.serialize(TOPIC, orderCreated);
+        }
+
+        Object value = deserializer.deserialize(TOPIC, new RecordHeaders(), json);
+
+        assertThat(value).isEqualTo(orderCreated);
+    }
+
+    @Test
+    void deserialize_JsonValueWithStreamingDelegate() {
+        deserializer.configure(Map.of(
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, DispatchBinaryDeserializer.class,
+                DispatchBinaryDeserializer.JSON_DELEGATE_CLASS, OrderCreatedDeserializer.class), false);
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+        byte[] json = ("{\"orderId\":\"" + orderCreated.getOrderId() + "\",\"item\":\"my-item\"}").getBytes(StandardCharsets.UTF_8);
+
+        Object value = deserializer.deserialize(TOPIC, new RecordHeaders(), json);
+
+        assertThat(value).isEqualTo(orderCreated);
+    }
+
+    @Test
+    void deserialize_MalformedBinaryValueIsPoisonPill() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] malformed = {DispatchBinaryFormat.MAGIC, DispatchBinaryFormat.VERSION, 1, 1, 2, 3};
+
+        Object value = deserializer.deserialize(TOPIC, headers, malformed);
+
+        assertThat(value).isNull();
+        assertThat(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)).isNotNull();
+    }
+
+    @Test
+    void deserialize_MalformedJsonValueIsPoisonPill() {
+        RecordHeaders headers = new RecordHeaders();
+
+        Object value = deserializer.deserialize(TOPIC, headers, "{not json".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(value).isNull();
+        assertThat(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)).isNotNull();
+    }
+}
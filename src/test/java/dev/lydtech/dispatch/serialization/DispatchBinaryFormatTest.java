@@ -0,0 +1,94 @@
+package dev.lydtech.dispatch.serialization;
+
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.util.TestEventData;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Arrays;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DispatchBinaryFormatTest {
+
+    @Test
+    void roundTrip_AllMessages() {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+        DispatchPreparing dispatchPreparing = DispatchPreparing.builder().orderId(randomUUID()).build();
+        OrderDispached orderDispached = OrderDispached.builder()
+                .orderId(randomUUID()).processedById(randomUUID()).notes("Dispatched: ünïcode " + "x".repeat(200)).build();
+        DispatchCompleted dispatchCompleted = DispatchCompleted.builder()
+                .orderId(randomUUID()).dispatchedDate("2023-11-01").build();
+        DispatchTracked dispatchTracked = DispatchTracked.builder()
+                .version(2).orderId(randomUUID()).dispatchedDate("2023-11-01").build();
+
+        assertThat(roundTrip(orderCreated)).isEqualTo(orderCreated);
+        assertThat(roundTrip(dispatchPreparing)).isEqualTo(dispatchPreparing);
+        assertThat(roundTrip(orderDispached)).isEqualTo(orderDispached);
+        assertThat(roundTrip(dispatchCompleted)).isEqualTo(dispatchCompleted);
+        assertThat(roundTrip(dispatchTracked)).isEqualTo(dispatchTracked);
+    }
+
+    @Test
+    void roundTrip_NullFields() {
+        assertThat(roundTrip(new OrderCreated())).isEqualTo(new OrderCreated());
+        assertThat(roundTrip(new OrderDispached())).isEqualTo(new OrderDispached());
+    }
+
+    @Test
+    void encode_VersionedHeaderAndRawUuid() {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+
+        byte[] binary = DispatchBinaryFormat.encode(orderCreated);
+
+        assertThat(binary[0]).isEqualTo(DispatchBinaryFormat.MAGIC);
+        assertThat(binary[1]).isEqualTo(DispatchBinaryFormat.VERSION);
+        assertThat(binary[2]).isEqualTo(DispatchBinaryFormat.ORDER_CREATED);
+        // header, uuid presence and 16 bytes, length and 7 bytes of item
+        assertThat(binary).hasSize(3 + 17 + 1 + 7);
+        try (JsonSerializer<Object> jsonSerializer = new JsonSerializer<>()) {
+            assertThat(binary.length).isLessThan(jsonSerializer.serialize("order.created", orderCreated).length / 2);
+        }
+    }
+
+    @Test
+    void encode_UnknownType() {
+        assertThrows(SerializationException.class, () -> DispatchBinaryFormat.encode("not a message"));
+    }
+
+    @Test
+    void decode_UnsupportedVersion() {
+        byte[] binary = DispatchBinaryFormat.encode(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item"));
+        binary[1] = 2;
+
+        SerializationException exception = assertThrows(SerializationException.class, () -> DispatchBinaryFormat.decode(binary));
+        assertThat(exception.getMessage()).isEqualTo("Unsupported binary format version 2");
+    }
+
+    @Test
+    void decode_Truncated() {
+        byte[] binary = DispatchBinaryFormat.encode(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item"));
+
+        assertThrows(SerializationException.class, () -> DispatchBinaryFormat.decode(Arrays.copyOf(binary, binary.length - 1)));
+        assertThrows(SerializationException.class, () -> DispatchBinaryFormat.decode(Arrays.copyOf(binary, 10)));
+    }
+
+    @Test
+    void decode_UnknownType() {
+        byte[] binary = DispatchBinaryFormat.encode(TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item"));
+        binary[2] = 42;
+
+        assertThrows(SerializationException.class, () -> DispatchBinaryFormat.decode(binary));
+    }
+
+    private Object roundTrip(Object message) {
+        return DispatchBinaryFormat.decode(DispatchBinaryFormat.encode(message));
+    }
+}
@@ -0,0 +1,124 @@
+package dev.lydtech.dispatch.serialization;
+
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.OrderCreated;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCreatedDeserializerTest {
+
+    private static final String TOPIC = "order.created";
+
+    private final OrderCreatedDeserializer deserializer = new OrderCreatedDeserializer();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"orderId\":\"2c8f1a52-3e0b-4c1f-9d2e-7a6b5c4d3e2f\",\"item\":\"my-item\"}",
+            "{ \"item\" : \"my-item\" , \"orderId\" : \"2C8F1A52-3E0B-4C1F-9D2E-7A6B5C4D3E2F\" }",
+            "{\"orderId\":\"2c8f1a52-3e0b-4c1f-9d2e-7a6b5c4d3e2f\",\"extra\":{\"nested\":[1,2,{\"a\":null}]},\"item\":\"my-item\"}",
+            "{\"orderId\":null,\"item\":\"my \\\"quoted\\\" \\u00fcitem\"}",
+            "{\"item\":42}",
+            "{\"item\":-4.2e+10,\"flag\":true,\"other\":false,\"list\":[],\"empty\":{}}",
+            "{\"item\":\"caf\u00e9 \u2615\",\"escaped\\\"name\":\"\\\\\\/\\b\\f\\n\\r\\t\"}",
+            "{\"item\":\"a\\u0041\\u00e9\\ud83d\\ude00b\"}",
+            " \n{ } ",
+            "{}"
+    })
+    void deserialize_SameResultAsJsonDeserializer(String json) {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(deserializer.deserialize(TOPIC, data)).isEqualTo(jsonDeserializer().deserialize(TOPIC, data));
+    }
+
+    @Test
+    void deserialize_ParsesOrderId() {
+        UUID orderId = UUID.randomUUID();
+        byte[] data = ("{\"orderId\":\"" + orderId + "\",\"item\":\"my-item\"}").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(deserializer.deserialize(TOPIC, data)).isEqualTo(new OrderCreated(orderId, "my-item"));
+    }
+
+    @Test
+    void deserialize_Null() {
+        assertThat(deserializer.deserialize(TOPIC, null)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"orderId\":\"not-a-uuid\",\"item\":\"my-item\"}",
+            "{\"orderId\":\"2c8f1a52x3e0b-4c1f-9d2e-7a6b5c4d3e2f\"}",
+            "{\"orderId\":\"2c8f1a52-3e0b-4c1f-9d2e-7a6b5c4d3e2g\"}",
+            "{\"orderId\":42}",
+            "{\"item\":[\"my-item\"]}",
+            "[\"my-item\"]",
+            "{\"orderId\":",
+            "{\"item\":01}",
+            "{\"item\":\"unterminated}",
+            "{\"item\":\"bad escape \\x\"}",
+            "{\"item\":\"raw\ttab\"}",
+            "{\"item\":tru}",
+            "{\"item\":\"my-item\" \"orderId\":null}",
+            "",
+            "not json"
+    })
+    void deserialize_Malformed(String json) {
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void deserialize_MalformedValueIsPoisonPill() {
+        try (ErrorHandlingDeserializer<Object> errorHandlingDeserializer = new ErrorHandlingDeserializer<>(deserializer)) {
+            RecordHeaders headers = new RecordHeaders();
+
+            Object value = errorHandlingDeserializer.deserialize(TOPIC, headers, "{\"orderId\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(value).isNull();
+            assertThat(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)).isNotNull();
+        }
+    }
+
+    @Test
+    void deserialize_OtherTypesGoToJsonDeserializer() {
+        UUID orderId = UUID.randomUUID();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                DispatchPreparing.class.getName().getBytes(StandardCharsets.UTF_8));
+        deserializer.configure(Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class), false);
+
+        Object value = deserializer.deserialize(TOPIC, headers, ("{\"orderId\":\"" + orderId + "\"}").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(value).isEqualTo(new DispatchPreparing(orderId));
+    }
+
+    @Test
+    void deserialize_OrderCreatedTypeHeader() {
+        UUID orderId = UUID.randomUUID();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                OrderCreated.class.getName().getBytes(StandardCharsets.UTF_8));
+
+        Object value = deserializer.deserialize(TOPIC, headers, ("{\"orderId\":\"" + orderId + "\",\"item\":\"my-item\"}").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(value).isEqualTo(new OrderCreated(orderId, "my-item"));
+    }
+
+    private JsonDeserializer<Object> jsonDeserializer() {
+        JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(Map.of(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderCreated.class), false);
+        return jsonDeserializer;
+    }
+}
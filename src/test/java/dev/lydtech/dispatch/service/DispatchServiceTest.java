@@ -1,23 +1,47 @@
 package dev.lydtech.dispatch.service;
 
+import dev.lydtech.dispatch.client.StockAvailability;
 import dev.lydtech.dispatch.client.StockServiceClient;
+import dev.lydtech.dispatch.dedup.ProcessedOrderStore;
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.jfr.DispatchSendEvent;
+import dev.lydtech.dispatch.jfr.StockCheckEvent;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.logging.HotPathLog.Outcome;
 import dev.lydtech.dispatch.message.DispatchCompleted;
 import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.DispatchTracked;
 import dev.lydtech.dispatch.message.OrderCreated;
 import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.metrics.TimedProducerRecord;
 import dev.lydtech.dispatch.util.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import lombok.SneakyThrows;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -29,11 +53,40 @@ class DispatchServiceTest {
 
     private StockServiceClient stockServiceClientMock;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private DispatchMetrics dispatchMetrics;
+
+    private HotPathLog hotPathLog;
+
     @BeforeEach
     void setUp() {
         kafkaProducerMock = mock(KafkaTemplate.class);
         stockServiceClientMock = mock(StockServiceClient.class);
-        service = new DispatchService(kafkaProducerMock, stockServiceClientMock);
+        when(stockServiceClientMock.checkAvailableAsync(anyString())).thenCallRealMethod();
+        meterRegistry = new SimpleMeterRegistry();
+        dispatchMetrics = new DispatchMetrics(meterRegistry);
+        hotPathLog = mock(HotPathLog.class);
+        service = dispatchService(null, false);
+    }
+
+    private DispatchService dispatchService(ProcessedOrderStore processedOrders, boolean pipelined) {
+        return new DispatchService(kafkaProducerMock, stockServiceClientMock, dispatchMetrics, hotPathLog,
+                DispatchEvents.separate(), processedOrders, pipelined, 16);
+    }
+
+    /**
+     * A timed send of a value of type to topic with key, null for any topic or any key
+     */
+    private static ProducerRecord<String, Object> record(String topic, String key, Class<?> type) {
+        return record(topic, key, type::isInstance);
+    }
+
+    private static ProducerRecord<String, Object> record(String topic, String key, Predicate<Object> value) {
+        return argThat(record -> record instanceof TimedProducerRecord
+                && (topic == null || topic.equals(record.topic()))
+                && (key == null || key.equals(record.key()))
+                && value.test(record.value()));
     }
 
     @Test
@@ -41,9 +94,9 @@ class DispatchServiceTest {
     void process_Success() {
         String key = randomUUID().toString();
 
-        when(kafkaProducerMock.send(anyString(), anyString(), any(OrderDispached.class))).thenReturn(mock(CompletableFuture.class));
-        when(kafkaProducerMock.send(anyString(), anyString(), any(DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
-        when(kafkaProducerMock.send(anyString(), anyString(), any(DispatchCompleted.class))).thenReturn(mock(CompletableFuture.class));
+        when(kafkaProducerMock.send(record(null, null, OrderDispached.class))).thenReturn(mock(CompletableFuture.class));
+        when(kafkaProducerMock.send(record(null, null, DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
+        when(kafkaProducerMock.send(record(null, null, DispatchCompleted.class))).thenReturn(mock(CompletableFuture.class));
         when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
 
         UUID id = randomUUID();
@@ -52,10 +105,188 @@ class DispatchServiceTest {
 
         service.process(key, testEvent);
 
-        verify(kafkaProducerMock, times(1)).send(eq("order.dispatched"), eq(key), any(OrderDispached.class));
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing.class));
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchCompleted.class));
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", key, OrderDispached.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchPreparing.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchCompleted.class));
         verify(stockServiceClientMock, times(1)).checkAvailable(testEvent.getItem());
+        assertThat(meterRegistry.get("dispatch.stock.check").tag("result", "available").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.process").tag("result", "success").timer().count()).isEqualTo(1);
+        verify(hotPathLog, times(1)).outcome(-1, Outcome.DISPATCHED);
+    }
+
+    @Test
+    @SneakyThrows
+    void process_CoalescedTracking_Success() {
+        service = new DispatchService(kafkaProducerMock, stockServiceClientMock, dispatchMetrics, hotPathLog,
+                new DispatchEvents(true, true), (ProcessedOrderStore) null, false, 16);
+        String key = randomUUID().toString();
+
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+
+        service.process(key, testEvent);
+
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", key,
+                message -> message instanceof OrderDispached orderDispached && orderDispached.getNotes() == null));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key,
+                message -> message instanceof DispatchTracked tracked
+                        && tracked.getVersion() == DispatchEvents.COALESCED_VERSION
+                        && tracked.getOrderId().equals(testEvent.getOrderId())
+                        && tracked.getDispatchedDate() != null));
+        verifyNoMoreInteractions(kafkaProducerMock);
+        verify(hotPathLog, times(1)).outcome(-1, Outcome.DISPATCHED);
+    }
+
+    @Test
+    void process_StockServiceThrowsException() {
+        when(stockServiceClientMock.checkAvailable(anyString())).thenThrow(new RetryableException("stock failure"));
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+        assertThrows(RetryableException.class, () -> service.process(randomUUID().toString(), testEvent));
+
+        verifyNoInteractions(kafkaProducerMock);
+        assertThat(meterRegistry.get("dispatch.stock.check").tag("result", "error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dispatch.process").tag("result", "failure").timer().count()).isEqualTo(1);
+        verify(hotPathLog, times(1)).outcome(-1, Outcome.RETRYABLE);
+    }
+
+    @Test
+    @SneakyThrows
+    void process_AlreadyDispatchedOrderIsSkipped() {
+        ProcessedOrderStore processedOrders = new ProcessedOrderStore(Duration.ofHours(1), 6, 1000, 1000, "");
+        service = dispatchService(processedOrders, false);
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+        service.process(0, "key", testEvent);
+        service.process(0, "key", testEvent);
+
+        verify(stockServiceClientMock, times(1)).checkAvailable(testEvent.getItem());
+        verify(kafkaProducerMock, times(3)).send(record(null, null, Object.class));
+        verify(hotPathLog, times(1)).outcome(0, Outcome.DUPLICATE);
+        assertThat(meterRegistry.get("dispatch.dedup.skipped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SneakyThrows
+    void process_FailedOrderIsNotMarkedDispatched() {
+        ProcessedOrderStore processedOrders = new ProcessedOrderStore(Duration.ofHours(1), 6, 1000, 1000, "");
+        service = dispatchService(processedOrders, false);
+        when(kafkaProducerMock.send(record(null, null, Object.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Producer failure")));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+        assertThrows(ExecutionException.class, () -> service.process(0, "key", testEvent));
+
+        assertThat(processedOrders.contains(testEvent.getOrderId())).isFalse();
+    }
+
+    @Test
+    void processBatch_AlreadyDispatchedOrderIsSkipped() {
+        ProcessedOrderStore processedOrders = new ProcessedOrderStore(Duration.ofHours(1), 6, 1000, 1000, "");
+        service = dispatchService(processedOrders, false);
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+        OrderCreated dispatched = TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1");
+        OrderCreated redelivered = TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2");
+        processedOrders.add(redelivered.getOrderId());
+
+        service.processBatch(List.of(
+                new ConsumerRecord<>("order.created", 0, 0, "key-1", dispatched),
+                new ConsumerRecord<>("order.created", 0, 1, "key-2", redelivered)));
+
+        verify(stockServiceClientMock, times(1)).checkAvailable("item-1");
+        verify(stockServiceClientMock, never()).checkAvailable("item-2");
+        assertThat(processedOrders.contains(dispatched.getOrderId())).isTrue();
+    }
+
+    @Test
+    @SneakyThrows
+    void process_RecordsJfrEvents() {
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), "my-item");
+        Path dump = Files.createTempFile("dispatch", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(StockCheckEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(DispatchSendEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            service.process(2, randomUUID().toString(), testEvent);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        assertThat(events).extracting(event -> event.getEventType().getName())
+                .containsExactlyInAnyOrder(StockCheckEvent.NAME, DispatchSendEvent.NAME, DispatchSendEvent.NAME, DispatchSendEvent.NAME);
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getString("orderId")).isEqualTo(testEvent.getOrderId().toString());
+            assertThat(event.getInt("partition")).isEqualTo(2);
+            assertThat(event.getString("item")).isEqualTo("my-item");
+        });
+        assertThat(events).extracting(event -> event.getString("result"))
+                .containsExactlyInAnyOrder("available", "success", "success", "success");
+    }
+
+    @Test
+    @SneakyThrows
+    void process_Pipelined_Success() {
+        service = dispatchService(null, true);
+        String key = randomUUID().toString();
+
+        CompletableFuture<Object> preparing = new CompletableFuture<>();
+        CompletableFuture<Object> dispatched = new CompletableFuture<>();
+        CompletableFuture<Object> completed = new CompletableFuture<>();
+        when(kafkaProducerMock.send(record(null, null, DispatchPreparing.class))).thenReturn(preparing);
+        when(kafkaProducerMock.send(record(null, null, OrderDispached.class))).thenReturn(dispatched);
+        when(kafkaProducerMock.send(record(null, null, DispatchCompleted.class))).thenReturn(completed);
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+        CompletableFuture<Void> processing = CompletableFuture.runAsync(() -> {
+            try {
+                service.process(key, testEvent);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // all three sends are issued before any of them is acknowledged
+        verify(kafkaProducerMock, timeout(1000).times(1)).send(record("dispatch.tracking", key, DispatchCompleted.class));
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", key, OrderDispached.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchPreparing.class));
+        assertThat(processing.isDone()).isFalse();
+
+        preparing.complete(null);
+        dispatched.complete(null);
+        completed.complete(null);
+        processing.get();
+    }
+
+    @Test
+    @SneakyThrows
+    void process_Pipelined_ProducerFutureFails() {
+        service = dispatchService(null, true);
+        String key = randomUUID().toString();
+
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaProducerMock.send(record(null, null, OrderDispached.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("order dispatched producer failure")));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+
+        Exception exception = assertThrows(ExecutionException.class, () -> service.process(key, testEvent));
+
+        assertThat(exception.getCause().getMessage()).isEqualTo("order dispatched producer failure");
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchCompleted.class));
     }
 
     @Test
@@ -65,11 +296,11 @@ class DispatchServiceTest {
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
         when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
-        doThrow(new RuntimeException("dispatch tracking preparing producer failure")).when(kafkaProducerMock).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing.class));
+        doThrow(new RuntimeException("dispatch tracking preparing producer failure")).when(kafkaProducerMock).send(record("dispatch.tracking", key, DispatchPreparing.class));
 
         Exception exception = assertThrows(RuntimeException.class, ()-> service.process(key, testEvent));
 
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchPreparing.class));
         verifyNoMoreInteractions(kafkaProducerMock);
         verify(stockServiceClientMock, times(1)).checkAvailable(testEvent.getItem());
         assertThat(exception.getMessage()).isEqualTo("dispatch tracking preparing producer failure");
@@ -83,13 +314,13 @@ class DispatchServiceTest {
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
         when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
-        when(kafkaProducerMock.send(anyString(), anyString(), any(DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
-        doThrow(new RuntimeException("order dispatched producer failure")).when(kafkaProducerMock).send(eq("order.dispatched"), eq(key), any(OrderDispached.class));
+        when(kafkaProducerMock.send(record(null, null, DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
+        doThrow(new RuntimeException("order dispatched producer failure")).when(kafkaProducerMock).send(record("order.dispatched", key, OrderDispached.class));
 
         Exception exception = assertThrows(RuntimeException.class, ()-> service.process(key, testEvent));
 
-        verify(kafkaProducerMock, times(1)).send(eq("order.dispatched"), eq(key), any(OrderDispached.class));
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing.class));
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", key, OrderDispached.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchPreparing.class));
         verify(stockServiceClientMock, times(1)).checkAvailable(testEvent.getItem());
         assertThat(exception.getMessage()).isEqualTo("order dispatched producer failure");
     }
@@ -101,16 +332,139 @@ class DispatchServiceTest {
 
         OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
         when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
-        when(kafkaProducerMock.send(anyString(), anyString(), any(OrderDispached.class))).thenReturn(mock(CompletableFuture.class));
-        when(kafkaProducerMock.send(anyString(), anyString(), any(DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
-        doThrow(new RuntimeException("order dispatched completed producer failure")).when(kafkaProducerMock).send(eq("dispatch.tracking"), eq(key), any(DispatchCompleted.class));
+        when(kafkaProducerMock.send(record(null, null, OrderDispached.class))).thenReturn(mock(CompletableFuture.class));
+        when(kafkaProducerMock.send(record(null, null, DispatchPreparing.class))).thenReturn(mock(CompletableFuture.class));
+        doThrow(new RuntimeException("order dispatched completed producer failure")).when(kafkaProducerMock).send(record("dispatch.tracking", key, DispatchCompleted.class));
 
         Exception exception = assertThrows(RuntimeException.class, ()-> service.process(key, testEvent));
 
-        verify(kafkaProducerMock, times(1)).send(eq("order.dispatched"), eq(key), any(OrderDispached.class));
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchPreparing.class));
-        verify(kafkaProducerMock, times(1)).send(eq("dispatch.tracking"), eq(key), any(DispatchCompleted.class));
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", key, OrderDispached.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchPreparing.class));
+        verify(kafkaProducerMock, times(1)).send(record("dispatch.tracking", key, DispatchCompleted.class));
         verify(stockServiceClientMock, times(1)).checkAvailable(testEvent.getItem());
         assertThat(exception.getMessage()).isEqualTo("order dispatched completed producer failure");
     }
+
+    @Test
+    void processBatch_Success() {
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        List<ConsumerRecord<String, OrderCreated>> records = List.of(buildRecord(0), buildRecord(1));
+
+        service.processBatch(records);
+
+        verify(kafkaProducerMock, times(2)).send(record("order.dispatched", null, OrderDispached.class));
+        verify(kafkaProducerMock, times(2)).send(record("dispatch.tracking", null, DispatchPreparing.class));
+        verify(kafkaProducerMock, times(2)).send(record("dispatch.tracking", null, DispatchCompleted.class));
+        verify(stockServiceClientMock, times(2)).checkAvailable(anyString());
+    }
+
+    @Test
+    void processBatch_StockServiceThrowsException() {
+        List<ConsumerRecord<String, OrderCreated>> records = List.of(buildRecord(0), buildRecord(1), buildRecord(2));
+
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+        when(stockServiceClientMock.checkAvailable(records.get(1).value().getItem())).thenThrow(new RetryableException("stock failure"));
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> service.processBatch(records));
+
+        assertThat(exception.getIndex()).isEqualTo(1);
+        assertThat(exception.getCause()).isInstanceOf(RetryableException.class);
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", null, OrderDispached.class));
+        verify(stockServiceClientMock, times(2)).checkAvailable(anyString());
+    }
+
+    @Test
+    void processBatch_ProducerFutureFails() {
+        List<ConsumerRecord<String, OrderCreated>> records = List.of(buildRecord(0), buildRecord(1));
+
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaProducerMock.send(record("order.dispatched", records.get(1).key(), OrderDispached.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("order dispatched producer failure")));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> service.processBatch(records));
+
+        assertThat(exception.getIndex()).isEqualTo(1);
+        assertThat(exception.getCause().getMessage()).isEqualTo("order dispatched producer failure");
+        verify(kafkaProducerMock, times(2)).send(record("order.dispatched", null, OrderDispached.class));
+    }
+
+    @Test
+    void processBatch_DeserializationFailure() {
+        List<ConsumerRecord<String, OrderCreated>> records = List.of(
+                buildRecord(0),
+                new ConsumerRecord<>("order.created", 0, 1, randomUUID().toString(), null));
+
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(stockServiceClientMock.checkAvailable(anyString())).thenReturn("true");
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () -> service.processBatch(records));
+
+        assertThat(exception.getIndex()).isEqualTo(1);
+        verify(stockServiceClientMock, times(1)).checkAvailable(anyString());
+    }
+
+    @Test
+    void processBatch_StockLookupsAreInFlightTogetherUpToTheLookahead() {
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(CompletableFuture.completedFuture(null));
+        List<ConsumerRecord<String, OrderCreated>> records = List.of(buildRecord(0), buildRecord(1), buildRecord(2),
+                buildRecord(3), buildRecord(4));
+
+        NonBlockingStock unbounded = new NonBlockingStock();
+        new DispatchService(kafkaProducerMock, unbounded, dispatchMetrics, hotPathLog, DispatchEvents.separate(),
+                (ProcessedOrderStore) null, false, 16).processBatch(records);
+        assertThat(unbounded.maxInFlight.get()).isEqualTo(5);
+
+        NonBlockingStock bounded = new NonBlockingStock();
+        new DispatchService(kafkaProducerMock, bounded, dispatchMetrics, hotPathLog, DispatchEvents.separate(),
+                (ProcessedOrderStore) null, false, 2).processBatch(records);
+        assertThat(bounded.maxInFlight.get()).isEqualTo(2);
+        verify(kafkaProducerMock, times(10)).send(record("order.dispatched", null, OrderDispached.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void withStockAvailability_LooksUpStockOnTheOtherProvider() {
+        when(kafkaProducerMock.send(record(null, null, Object.class))).thenReturn(mock(CompletableFuture.class));
+        StockAvailability other = mock(StockAvailability.class);
+        when(other.checkAvailable(anyString())).thenReturn("true");
+        OrderCreated testEvent = TestEventData.buildOrderCreatedEvent(randomUUID(), "item");
+
+        service.withStockAvailability(other).process(randomUUID().toString(), testEvent);
+
+        verify(other, times(1)).checkAvailable("item");
+        verifyNoInteractions(stockServiceClientMock);
+        verify(kafkaProducerMock, times(1)).send(record("order.dispatched", null, OrderDispached.class));
+    }
+
+    /**
+     * Answers every lookup 50ms later on another thread, counting the lookups in flight at once
+     */
+    private static class NonBlockingStock implements StockAvailability {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String checkAvailable(String item) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> checkAvailableAsync(String item) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return "true";
+            }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private ConsumerRecord<String, OrderCreated> buildRecord(long offset) {
+        OrderCreated orderCreated = TestEventData.buildOrderCreatedEvent(randomUUID(), randomUUID().toString());
+        return new ConsumerRecord<>("order.created", 0, offset, randomUUID().toString(), orderCreated);
+    }
 }
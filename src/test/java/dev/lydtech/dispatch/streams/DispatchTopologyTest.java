@@ -0,0 +1,251 @@
+package dev.lydtech.dispatch.streams;
+
+import dev.lydtech.dispatch.exception.RetryableException;
+import dev.lydtech.dispatch.logging.HotPathLog;
+import dev.lydtech.dispatch.message.DispatchCompleted;
+import dev.lydtech.dispatch.message.DispatchPreparing;
+import dev.lydtech.dispatch.message.OrderCreated;
+import dev.lydtech.dispatch.message.OrderDispached;
+import dev.lydtech.dispatch.metrics.DispatchMetrics;
+import dev.lydtech.dispatch.service.DispatchEvents;
+import dev.lydtech.dispatch.util.TestEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static dev.lydtech.dispatch.streams.DispatchTopology.*;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The scenarios of OrderDispatchIntegrationTest against the Kafka Streams engine
+ */
+class DispatchTopologyTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(5);
+    private static final Duration BACKOFF = Duration.ofMillis(100);
+
+    private final List<String> lookups = new ArrayList<>();
+    private Function<String, CompletableFuture<Boolean>> stockService;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, OrderCreated> orderCreated;
+    private TestOutputTopic<String, Object> dispatchTracking;
+    private TestOutputTopic<String, Object> orderDispatched;
+    private TestOutputTopic<String, Object> orderCreatedDlt;
+    private final MockProducer<byte[], byte[]> deadLetterProducer =
+            new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+
+    @BeforeEach
+    void setUp() {
+        stockService = item -> CompletableFuture.completedFuture(true);
+        StreamsBuilder builder = new StreamsBuilder();
+        DispatchTopology.build(builder, () -> new StockCheckProcessor(item -> {
+            lookups.add(item);
+            return stockService.apply(item);
+        }, DispatchEvents.separate(), 10, WINDOW, 4, BACKOFF, new DispatchMetrics(new SimpleMeterRegistry()), new HotPathLog(0, Duration.ZERO)));
+
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "dispatch-topology-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        config.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterDeserializationExceptionHandler.class);
+        config.put(DeadLetterDeserializationExceptionHandler.PRODUCER_CONFIG, deadLetterProducer);
+        driver = new TopologyTestDriver(builder.build(), config);
+
+        orderCreated = driver.createInputTopic(ORDER_CREATED_TOPIC, new StringSerializer(), new JsonSerializer<>());
+        dispatchTracking = outputTopic(DISPATCH_TRACKING_TOPIC);
+        orderDispatched = outputTopic(ORDER_DISPATCHED_TOPIC);
+        orderCreatedDlt = outputTopic(ORDER_CREATED_DLT_TOPIC);
+    }
+
+    private TestOutputTopic<String, Object> outputTopic(String topic) {
+        JsonDeserializer<Object> deserializer = new JsonDeserializer<>();
+        deserializer.addTrustedPackages("dev.lydtech.dispatch.message");
+        return driver.createOutputTopic(topic, new StringDeserializer(), deserializer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void testOrderDispatchedFlow_Success() {
+        OrderCreated order = TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item");
+        String key = randomUUID().toString();
+
+        orderCreated.pipeInput(key, order);
+        assertThat(dispatchTracking.isEmpty()).isTrue();
+        driver.advanceWallClockTime(WINDOW);
+
+        List<TestRecord<String, Object>> tracking = dispatchTracking.readRecordsToList();
+        assertThat(tracking).hasSize(2);
+        assertThat(tracking).allSatisfy(record -> assertThat(record.key()).isEqualTo(key));
+        assertThat(tracking.get(0).value()).isInstanceOfSatisfying(DispatchPreparing.class,
+                preparing -> assertThat(preparing.getOrderId()).isEqualTo(order.getOrderId()));
+        assertThat(tracking.get(1).value()).isInstanceOfSatisfying(DispatchCompleted.class,
+                completed -> assertThat(completed.getOrderId()).isEqualTo(order.getOrderId()));
+        TestRecord<String, Object> dispatched = orderDispatched.readRecord();
+        assertThat(dispatched.key()).isEqualTo(key);
+        assertThat(dispatched.value()).isInstanceOfSatisfying(OrderDispached.class,
+                orderDispached -> assertThat(orderDispached.getNotes()).isEqualTo("Dispatch: test-item"));
+        assertThat(orderCreatedDlt.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testOrderDispatchedFlow_Unavailable() {
+        stockService = item -> CompletableFuture.completedFuture(false);
+
+        orderCreated.pipeInput(randomUUID().toString(), TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"));
+        driver.advanceWallClockTime(WINDOW);
+
+        assertThat(dispatchTracking.isEmpty()).isTrue();
+        assertThat(orderDispatched.isEmpty()).isTrue();
+        assertThat(orderCreatedDlt.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testOrderDispatchedFlow_NotRetryableException() {
+        stockService = item -> CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        OrderCreated order = TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item");
+        String key = randomUUID().toString();
+
+        orderCreated.pipeInput(key, order);
+        driver.advanceWallClockTime(WINDOW);
+
+        TestRecord<String, Object> deadLettered = orderCreatedDlt.readRecord();
+        assertThat(deadLettered.key()).isEqualTo(key);
+        assertThat(deadLettered.value()).isEqualTo(order);
+        assertThat(new String(deadLettered.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN).value()))
+                .isEqualTo(HttpClientErrorException.class.getName());
+        assertThat(lookups).hasSize(1);
+        assertThat(dispatchTracking.isEmpty()).isTrue();
+        assertThat(orderDispatched.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testOrderDispatchedFlow_RetryableException() {
+        stockService = item -> CompletableFuture.failedFuture(new RetryableException("service unavailable"));
+
+        orderCreated.pipeInput(randomUUID().toString(), TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"));
+        driver.advanceWallClockTime(WINDOW);
+        assertThat(dispatchTracking.isEmpty()).isTrue();
+
+        stockService = item -> CompletableFuture.completedFuture(true);
+        driver.advanceWallClockTime(WINDOW);
+        assertThat(lookups).as("retried before its backoff").hasSize(1);
+        driver.advanceWallClockTime(BACKOFF);
+
+        assertThat(lookups).hasSize(2);
+        assertThat(dispatchTracking.readValuesToList()).hasSize(2);
+        assertThat(orderDispatched.readValuesToList()).hasSize(1);
+        assertThat(orderCreatedDlt.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testOrderDispatchedFlow_RetryUntilFailure() {
+        stockService = item -> CompletableFuture.failedFuture(new RetryableException("service unavailable"));
+        OrderCreated order = TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item");
+
+        orderCreated.pipeInput(randomUUID().toString(), order);
+        for (int i = 0; i < 4; i++) {
+            driver.advanceWallClockTime(BACKOFF);
+        }
+
+        assertThat(lookups).hasSize(4);
+        assertThat(orderCreatedDlt.readValue()).isEqualTo(order);
+        assertThat(dispatchTracking.isEmpty()).isTrue();
+        assertThat(orderDispatched.isEmpty()).isTrue();
+    }
+
+    /**
+     * The dead letter of an undeserializable record is sent by the handler's own producer, not by the topology
+     */
+    @Test
+    void testUndeserializableRecordIsDeadLetteredAndSkipped() {
+        byte[] garbage = "{not json".getBytes(StandardCharsets.UTF_8);
+        TestInputTopic<String, byte[]> rawOrderCreated = driver.createInputTopic(ORDER_CREATED_TOPIC,
+                new StringSerializer(), new ByteArraySerializer());
+
+        rawOrderCreated.pipeInput("key", garbage);
+        orderCreated.pipeInput("key", TestEventData.buildOrderCreatedEvent(randomUUID(), "test-item"));
+        driver.advanceWallClockTime(WINDOW);
+
+        assertThat(deadLetterProducer.history()).hasSize(1);
+        ProducerRecord<byte[], byte[]> deadLettered = deadLetterProducer.history().get(0);
+        assertThat(deadLettered.topic()).isEqualTo(ORDER_CREATED_DLT_TOPIC);
+        assertThat(deadLettered.key()).isEqualTo("key".getBytes(StandardCharsets.UTF_8));
+        assertThat(deadLettered.value()).isEqualTo(garbage);
+        assertThat(new String(deadLettered.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC).value()))
+                .isEqualTo(ORDER_CREATED_TOPIC);
+        assertThat(deadLettered.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN)).isNotNull();
+        assertThat(lookups).containsExactly("test-item");
+        assertThat(orderDispatched.readValuesToList()).hasSize(1);
+    }
+
+    @Test
+    void testOrdersBehindARetryWaitAndKeepTheirOrder() {
+        List<CompletableFuture<Boolean>> answers = new ArrayList<>(List.of(
+                CompletableFuture.failedFuture(new RetryableException("service unavailable"))));
+        stockService = item -> answers.isEmpty() ? CompletableFuture.completedFuture(true) : answers.remove(0);
+        OrderCreated first = TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1");
+        OrderCreated second = TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2");
+
+        orderCreated.pipeInput("key", first);
+        orderCreated.pipeInput("key", second);
+        driver.advanceWallClockTime(WINDOW);
+        assertThat(orderDispatched.isEmpty()).isTrue();
+
+        driver.advanceWallClockTime(BACKOFF);
+
+        assertThat(orderDispatched.readValuesToList()).extracting(value -> ((OrderDispached) value).getOrderId())
+                .containsExactly(first.getOrderId(), second.getOrderId());
+    }
+
+    @Test
+    void testOneLookupPerItemOfTheWindow() {
+        orderCreated.pipeInput("key-1", TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"));
+        orderCreated.pipeInput("key-2", TestEventData.buildOrderCreatedEvent(randomUUID(), "item-1"));
+        orderCreated.pipeInput("key-3", TestEventData.buildOrderCreatedEvent(randomUUID(), "item-2"));
+        driver.advanceWallClockTime(WINDOW);
+
+        assertThat(lookups).containsExactlyInAnyOrder("item-1", "item-2");
+        assertThat(orderDispatched.readValuesToList()).hasSize(3);
+    }
+
+    @Test
+    void testFullBufferIsDrainedWithoutWaitingForTheWindow() {
+        for (int i = 0; i < 10; i++) {
+            orderCreated.pipeInput("key-" + i, TestEventData.buildOrderCreatedEvent(randomUUID(), "item-" + i));
+        }
+
+        assertThat(orderDispatched.readValuesToList()).hasSize(10);
+    }
+}